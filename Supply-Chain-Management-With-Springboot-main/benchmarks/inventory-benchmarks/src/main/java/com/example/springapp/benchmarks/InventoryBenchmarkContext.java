@@ -0,0 +1,90 @@
+package com.example.springapp.benchmarks;
+
+import com.example.springapp.InventoryServiceApplication;
+import com.example.springapp.client.ProductClient;
+import com.example.springapp.dto.ProductDTO;
+import com.example.springapp.dto.ProductPageDTO;
+import com.example.springapp.models.Inventory;
+import com.example.springapp.repositories.InventoryRepository;
+import com.example.springapp.service.InventoryService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Boots inventory-service without a web server against an in-memory H2 database, with Kafka
+ * listeners and the outbox relay switched off and product-service replaced by a stub.
+ */
+final class InventoryBenchmarkContext {
+
+    static final long FIRST_PRODUCT_ID = 1_000_000L;
+
+    private static final String[] PROPERTIES = {
+            "spring.datasource.url=jdbc:h2:mem:inventory-bench;MODE=MySQL;DB_CLOSE_DELAY=-1",
+            "spring.datasource.username=sa",
+            "spring.datasource.password=",
+            "spring.datasource.hikari.maximum-pool-size=32",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "spring.jpa.show-sql=false",
+            "spring.main.banner-mode=off",
+            "logging.level.root=WARN",
+            "eureka.client.enabled=false",
+            "spring.kafka.bootstrap-servers=localhost:1",
+            "spring.kafka.listener.auto-startup=false",
+            "inventory.outbox.relay.enabled=false",
+    };
+
+    private InventoryBenchmarkContext() {
+    }
+
+    // As command line arguments, so they override the service's own application.properties
+    private static String[] arguments(String... extraProperties) {
+        return Stream.concat(Arrays.stream(PROPERTIES), Arrays.stream(extraProperties))
+                .map(property -> "--" + property)
+                .toArray(String[]::new);
+    }
+
+    static ConfigurableApplicationContext start(String... extraProperties) {
+        return new SpringApplicationBuilder(InventoryServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .initializers(new BeanStubs(Map.of(ProductClient.class.getName(), new StubProductClient())))
+                .run(arguments(extraProperties));
+    }
+
+    /** Creates products FIRST_PRODUCT_ID.. with the given stock and room to restock as far again. */
+    static void seed(ConfigurableApplicationContext context, int products, int stock) {
+        InventoryService inventoryService = context.getBean(InventoryService.class);
+        InventoryRepository inventoryRepository = context.getBean(InventoryRepository.class);
+        for (int i = 0; i < products; i++) {
+            long productId = FIRST_PRODUCT_ID + i;
+            inventoryService.createInventoryFromProduct(productId, "Product " + productId, stock);
+            Inventory inventory = inventoryRepository.findByProductId(productId).orElseThrow();
+            inventory.setMaxCapacity(stock * 2);
+            inventoryRepository.save(inventory);
+        }
+    }
+
+    static final class StubProductClient implements ProductClient {
+
+        @Override
+        public ProductDTO getProductById(Long id) {
+            ProductDTO product = new ProductDTO();
+            product.setId(id);
+            product.setName("Product " + id);
+            return product;
+        }
+
+        @Override
+        public ProductPageDTO getProducts(int pageNo, int pageSize) {
+            ProductPageDTO page = new ProductPageDTO();
+            page.setContent(List.of());
+            page.setLast(true);
+            return page;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.springapp.benchmarks;
+
+import com.example.springapp.models.StockTransaction;
+import com.example.springapp.service.StockTransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StockTransactionService.recordTransaction outside a transaction, i.e. straight into the
+ * ledger writer. Without awaitFlush this settles at the writer's group-commit rate once the
+ * queue is full; with it every call waits for its batch, which is the durable-mode latency.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordTransactionBenchmark {
+
+    private static final int PRODUCTS = 1000;
+
+    @Param({"false", "true"})
+    boolean awaitFlush;
+
+    private ConfigurableApplicationContext context;
+    private StockTransactionService stockTransactionService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = InventoryBenchmarkContext.start();
+        stockTransactionService = context.getBean(StockTransactionService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String recordTransaction() {
+        StockTransaction transaction = new StockTransaction();
+        transaction.setProductId(InventoryBenchmarkContext.FIRST_PRODUCT_ID + ThreadLocalRandom.current().nextInt(PRODUCTS));
+        transaction.setTransactionType("SALE");
+        transaction.setQuantity(-1);
+        transaction.setPreviousStock(100);
+        transaction.setNewStock(99);
+        transaction.setPerformedBy("benchmark");
+        return stockTransactionService.recordTransaction(transaction, awaitFlush);
+    }
+}
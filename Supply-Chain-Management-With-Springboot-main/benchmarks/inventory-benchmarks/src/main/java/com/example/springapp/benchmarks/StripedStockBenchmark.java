@@ -0,0 +1,70 @@
+package com.example.springapp.benchmarks;
+
+import com.example.springapp.service.InventoryService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One hot product under concurrent sales and restocks, with its stock in the inventory row
+ * (cells=0) or striped over that many cells. Run with increasing -t to see how throughput on a
+ * single SKU scales with writers, e.g. -t 1, 4, 16.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StripedStockBenchmark {
+
+    private static final int START_STOCK = 1_000_000;
+    private static final long PRODUCT_ID = InventoryBenchmarkContext.FIRST_PRODUCT_ID;
+
+    @Param({"0", "8", "32"})
+    int cells;
+
+    private ConfigurableApplicationContext context;
+    private InventoryService inventoryService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = InventoryBenchmarkContext.start();
+        InventoryBenchmarkContext.seed(context, 1, START_STOCK);
+        inventoryService = context.getBean(InventoryService.class);
+        if (cells > 0) {
+            inventoryService.enableStripedStock(PRODUCT_ID, cells);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Direction {
+        boolean restock;
+    }
+
+    @Benchmark
+    public String updateHotProduct(Direction direction) {
+        direction.restock = !direction.restock;
+        return direction.restock
+                ? inventoryService.restockProduct(PRODUCT_ID, 1, "benchmark")
+                : inventoryService.reduceStock(PRODUCT_ID, 1, "benchmark");
+    }
+}
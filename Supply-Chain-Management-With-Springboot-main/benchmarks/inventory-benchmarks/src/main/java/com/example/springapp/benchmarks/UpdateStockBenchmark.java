@@ -0,0 +1,115 @@
+package com.example.springapp.benchmarks;
+
+import com.example.springapp.models.Inventory;
+import com.example.springapp.models.StockTransaction;
+import com.example.springapp.repositories.InventoryRepository;
+import com.example.springapp.service.InventoryService;
+import com.example.springapp.service.StockTransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InventoryService.updateStock end to end: conditional UPDATE, low-stock index, outbox rows and
+ * the ledger hand-off. Each thread alternates a one-unit sale and restock on a random product,
+ * so products=1 measures a single hot row and larger values measure spread-out traffic.
+ * readModifyWrite is the path updateStock replaced, as the baseline to compare it with. They
+ * have measured within error of each other; updateStock's gain is that no update is lost.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UpdateStockBenchmark {
+
+    private static final int START_STOCK = 1_000_000;
+
+    @Param({"1", "1000"})
+    int products;
+
+    private ConfigurableApplicationContext context;
+    private InventoryService inventoryService;
+    private InventoryRepository inventoryRepository;
+    private StockTransactionService stockTransactionService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // readModifyWrite's conflicts are expected; logging each one would slow it down further
+        context = InventoryBenchmarkContext.start(
+                "logging.level.org.hibernate.engine.jdbc.batch.internal.BatchingBatch=OFF");
+        InventoryBenchmarkContext.seed(context, products, START_STOCK);
+        inventoryService = context.getBean(InventoryService.class);
+        inventoryRepository = context.getBean(InventoryRepository.class);
+        stockTransactionService = context.getBean(StockTransactionService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Direction {
+        boolean restock;
+    }
+
+    @Benchmark
+    public String updateStock(Direction direction) {
+        long productId = InventoryBenchmarkContext.FIRST_PRODUCT_ID + ThreadLocalRandom.current().nextInt(products);
+        direction.restock = !direction.restock;
+        return direction.restock
+                ? inventoryService.updateStock(productId, 1, "RESTOCK", "benchmark", null)
+                : inventoryService.updateStock(productId, -1, "SALE", "benchmark", null);
+    }
+
+    @Benchmark
+    public String readModifyWrite(Direction direction) {
+        long productId = InventoryBenchmarkContext.FIRST_PRODUCT_ID + ThreadLocalRandom.current().nextInt(products);
+        direction.restock = !direction.restock;
+        return direction.restock
+                ? readModifyWrite(productId, 1, "RESTOCK")
+                : readModifyWrite(productId, -1, "SALE");
+    }
+
+    // Load the row, change it in Java and save it, outside any transaction as updateStock used to.
+    // Inventory's @Version turns a lost update into a conflict, retried from the read. The ledger
+    // row goes through the same writer as updateStock's, so only the stock write differs
+    private String readModifyWrite(long productId, int quantity, String type) {
+        while (true) {
+            Inventory inventory = inventoryRepository.findByProductId(productId).orElseThrow();
+            int previousStock = inventory.getCurrentStock();
+            inventory.setCurrentStock(previousStock + quantity);
+            try {
+                inventoryRepository.saveAndFlush(inventory);
+            } catch (ObjectOptimisticLockingFailureException e) {
+                continue;
+            }
+            StockTransaction transaction = new StockTransaction();
+            transaction.setProductId(productId);
+            transaction.setTransactionType(type);
+            transaction.setQuantity(quantity);
+            transaction.setPreviousStock(previousStock);
+            transaction.setNewStock(previousStock + quantity);
+            transaction.setPerformedBy("benchmark");
+            stockTransactionService.recordTransaction(transaction);
+            return "Stock updated successfully. New stock: " + (previousStock + quantity);
+        }
+    }
+}
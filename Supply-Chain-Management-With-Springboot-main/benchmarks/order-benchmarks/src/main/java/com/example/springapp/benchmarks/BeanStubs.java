@@ -0,0 +1,38 @@
+package com.example.springapp.benchmarks;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+
+/**
+ * Swaps named beans for ready-made stubs (Feign clients, Kafka templates) once every bean
+ * definition is registered, so the rest of the service is wired exactly as in production.
+ * The definitions stay in place (Feign looks its clients up by name); only their class,
+ * properties and instance supplier change.
+ */
+final class BeanStubs implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    private final Map<String, Object> stubs;
+
+    BeanStubs(Map<String, Object> stubs) {
+        this.stubs = stubs;
+    }
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        context.addBeanFactoryPostProcessor(beanFactory -> {
+            stubs.forEach((name, stub) -> {
+                if (!beanFactory.containsBeanDefinition(name)) {
+                    throw new IllegalStateException("No bean named " + name + " to stub");
+                }
+                AbstractBeanDefinition definition = (AbstractBeanDefinition) beanFactory.getBeanDefinition(name);
+                definition.setBeanClass(stub.getClass());
+                definition.setPropertyValues(new MutablePropertyValues());
+                definition.setInstanceSupplier(() -> stub);
+            });
+        });
+    }
+}
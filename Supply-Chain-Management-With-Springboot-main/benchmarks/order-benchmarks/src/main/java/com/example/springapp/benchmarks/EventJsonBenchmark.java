@@ -0,0 +1,58 @@
+package com.example.springapp.benchmarks;
+
+import com.example.springapp.events.OrderEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderEvent through the same JsonSerializer settings as order-service's producer, and back
+ * through a JsonDeserializer configured like the consuming services' listeners.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventJsonBenchmark {
+
+    private JsonSerializer<OrderEvent> serializer;
+    private JsonDeserializer<OrderEvent> deserializer;
+    private OrderEvent orderEvent;
+    private byte[] orderEventJson;
+
+    @Setup
+    public void setUp() {
+        serializer = new JsonSerializer<>();
+        serializer.configure(Map.of(JsonSerializer.ADD_TYPE_INFO_HEADERS, false), false);
+        deserializer = new JsonDeserializer<>(OrderEvent.class, false);
+        orderEvent = new OrderEvent(OrderEvent.EventType.CREATED, 1001L, 42L, 3, 59.97, LocalDateTime.now(), null,
+                UUID.randomUUID().toString());
+        orderEventJson = serializer.serialize("order-events", orderEvent);
+    }
+
+    @Benchmark
+    public byte[] serializeOrderEvent() {
+        return serializer.serialize("order-events", orderEvent);
+    }
+
+    @Benchmark
+    public OrderEvent deserializeOrderEvent() {
+        return deserializer.deserialize("order-events", orderEventJson);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.springapp.benchmarks;
+
+import com.example.springapp.OrderServiceApplication;
+import com.example.springapp.client.InventoryClient;
+import com.example.springapp.dto.BatchStockRequest;
+import com.example.springapp.dto.BatchStockResponse;
+import com.example.springapp.dto.ReservationRequest;
+import com.example.springapp.dto.ReservationResponse;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Boots order-service without a web server against an in-memory H2 database, with
+ * inventory-service and the Kafka producer replaced by stubs that answer immediately.
+ */
+final class OrderBenchmarkContext {
+
+    private static final String[] PROPERTIES = {
+            "spring.datasource.url=jdbc:h2:mem:order-bench;MODE=MySQL;DB_CLOSE_DELAY=-1",
+            "spring.datasource.username=sa",
+            "spring.datasource.password=",
+            "spring.datasource.hikari.maximum-pool-size=32",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "spring.jpa.show-sql=false",
+            "spring.main.banner-mode=off",
+            "logging.level.root=WARN",
+            "eureka.client.enabled=false",
+            "spring.kafka.bootstrap-servers=localhost:1",
+    };
+
+    private OrderBenchmarkContext() {
+    }
+
+    // As command line arguments, so they override the service's own application.properties
+    private static String[] arguments(String... extraProperties) {
+        return Stream.concat(Arrays.stream(PROPERTIES), Arrays.stream(extraProperties))
+                .map(property -> "--" + property)
+                .toArray(String[]::new);
+    }
+
+    static ConfigurableApplicationContext start(String... extraProperties) {
+        return new SpringApplicationBuilder(OrderServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .initializers(new BeanStubs(Map.of(
+                        InventoryClient.class.getName(), new StubInventoryClient(),
+                        "kafkaTemplate", new StubKafkaTemplate())))
+                .run(arguments(extraProperties));
+    }
+
+    static final class StubInventoryClient implements InventoryClient {
+
+        @Override
+        public String reduceStock(Long productId, Map<String, Object> request, String idempotencyKey) {
+            return "Stock updated successfully. New stock: 0";
+        }
+
+        @Override
+        public BatchStockResponse reduceStockBatch(BatchStockRequest request) {
+            return new BatchStockResponse(true, "Stock reduced", List.of());
+        }
+
+        @Override
+        public ReservationResponse reserveStock(ReservationRequest request) {
+            return new ReservationResponse(true, "Reserved", request.getReference(),
+                    LocalDateTime.now().plusSeconds(request.getTtlSeconds()), List.of());
+        }
+
+        @Override
+        public BatchStockResponse commitReservation(String reference, BatchStockRequest fallback, String idempotencyKey) {
+            return new BatchStockResponse(true, "Committed", List.of());
+        }
+
+        @Override
+        public String releaseReservation(String reference) {
+            return "Reservation " + reference + " released";
+        }
+    }
+
+    // Never creates a producer; event JSON cost is measured separately in EventJsonBenchmark
+    static final class StubKafkaTemplate extends KafkaTemplate<String, Object> {
+
+        StubKafkaTemplate() {
+            super(new DefaultKafkaProducerFactory<>(Map.of()));
+        }
+
+        @Override
+        public CompletableFuture<SendResult<String, Object>> send(String topic, String key, Object data) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
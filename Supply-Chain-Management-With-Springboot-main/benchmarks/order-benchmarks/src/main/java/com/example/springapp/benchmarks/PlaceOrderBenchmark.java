@@ -0,0 +1,75 @@
+package com.example.springapp.benchmarks;
+
+import com.example.springapp.models.OrderItem;
+import com.example.springapp.models.Orders;
+import com.example.springapp.service.OrdersService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrdersService.placeOrder with an inventory-service stub that always grants the reservation,
+ * so the figure is order-service's own cost: order and item inserts plus the event hand-off.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlaceOrderBenchmark {
+
+    @Param({"1", "10"})
+    int itemsPerOrder;
+
+    private ConfigurableApplicationContext context;
+    private OrdersService ordersService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = OrderBenchmarkContext.start();
+        ordersService = context.getBean(OrdersService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String placeOrder() {
+        Orders order = new Orders();
+        order.setCustomerid("benchmark");
+        order.setOrderDate(LocalDateTime.now());
+        List<OrderItem> items = new ArrayList<>(itemsPerOrder);
+        double total = 0;
+        for (int i = 0; i < itemsPerOrder; i++) {
+            OrderItem item = new OrderItem();
+            item.setProductId(1000L + i);
+            item.setProductName("Product " + (1000 + i));
+            item.setQuantity(2);
+            item.setUnitPrice(4.99);
+            items.add(item);
+            total += 2 * 4.99;
+        }
+        order.setItems(items);
+        order.setTotalAmount(total);
+        return ordersService.placeOrder(order);
+    }
+}
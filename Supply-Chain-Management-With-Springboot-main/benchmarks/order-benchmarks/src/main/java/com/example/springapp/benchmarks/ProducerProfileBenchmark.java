@@ -0,0 +1,119 @@
+package com.example.springapp.benchmarks;
+
+import com.example.springapp.config.KafkaProducerConfig;
+import com.example.springapp.events.OrderEvent;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events per second through a real producer into an embedded single-broker Kafka (six
+ * partitions), with the client defaults the services used before (profile=defaults: no linger,
+ * 16 KB batches, no compression) and with the kafka.producer.* profile they use now
+ * (profile=tuned). Each invocation sends a burst of ORDER_LINE events keyed over 100 products
+ * and then waits for the acks of the previous burst, so the producer always has work queued,
+ * as it does under steady traffic, and a score counts acknowledged events only.
+ * <p>
+ * Producer, broker and benchmark share the machine and talk over loopback, so what batching and
+ * compression save (produce requests and bytes on the wire) costs nothing here while their CPU
+ * does. The trial prints requests per 1000 events and bytes sent per event next to the score.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProducerProfileBenchmark {
+
+    private static final String TOPIC = "order-events";
+    private static final int BURST = 1000;
+
+    @Param({"defaults", "tuned"})
+    String profile;
+
+    // Only used by the tuned profile; -p compressionType=zstd to compare
+    @Param({"lz4"})
+    String compressionType;
+
+    private EmbeddedKafkaBroker broker;
+    private DefaultKafkaProducerFactory<String, Object> producerFactory;
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    private final OrderEvent[] events = new OrderEvent[BURST];
+    private final String[] keys = new String[BURST];
+    private CompletableFuture<Void> previousBurst = CompletableFuture.completedFuture(null);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // No Spring context here to apply logging.level; the broker logs at DEBUG otherwise
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        broker = new EmbeddedKafkaBroker(1, false, 6, TOPIC);
+        broker.afterPropertiesSet();
+        Map<String, Object> props = "tuned".equals(profile)
+                ? KafkaProducerConfig.producerProps(broker.getBrokersAsString(), 10, 65536, compressionType, true)
+                : KafkaProducerConfig.baseProps(broker.getBrokersAsString());
+        producerFactory = new DefaultKafkaProducerFactory<>(props);
+        kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        for (int i = 0; i < BURST; i++) {
+            long productId = 1000L + i % 100;
+            events[i] = new OrderEvent(OrderEvent.EventType.ORDER_LINE, 5000L + i / 10, productId, 2, 9.98,
+                    LocalDateTime.now(), 4.99, UUID.randomUUID().toString());
+            keys[i] = Long.toString(productId);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        previousBurst.get(30, TimeUnit.SECONDS);
+        double records = producerMetric("record-send-total");
+        System.out.printf("%n%s/%s: %.1f produce requests per 1000 events, %.1f bytes sent per event%n",
+                profile, compressionType, 1000 * producerMetric("request-total") / records,
+                producerMetric("outgoing-byte-total") / records);
+        producerFactory.destroy();
+        broker.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void sendBurst() throws Exception {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[BURST];
+        for (int i = 0; i < BURST; i++) {
+            sends[i] = kafkaTemplate.send(TOPIC, keys[i], events[i]);
+        }
+        previousBurst.get(30, TimeUnit.SECONDS);
+        previousBurst = CompletableFuture.allOf(sends);
+    }
+
+    private double producerMetric(String name) {
+        for (Map.Entry<MetricName, ? extends Metric> metric : kafkaTemplate.metrics().entrySet()) {
+            if (metric.getKey().name().equals(name) && metric.getKey().group().equals("producer-metrics")) {
+                return ((Number) metric.getValue().metricValue()).doubleValue();
+            }
+        }
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.springapp.benchmarks;
+
+import com.example.springapp.events.InventoryEvent;
+import com.example.springapp.events.OrderEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The listener-side JsonDeserializer for both topics recommendation-service consumes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventJsonBenchmark {
+
+    private JsonDeserializer<InventoryEvent> inventoryEventDeserializer;
+    private JsonDeserializer<OrderEvent> orderEventDeserializer;
+    private byte[] inventoryEventJson;
+    private byte[] orderEventJson;
+
+    @Setup
+    public void setUp() {
+        inventoryEventDeserializer = new JsonDeserializer<>(InventoryEvent.class, false);
+        orderEventDeserializer = new JsonDeserializer<>(OrderEvent.class, false);
+        try (JsonSerializer<Object> serializer = new JsonSerializer<>()) {
+            inventoryEventJson = serializer.serialize("inventory-events",
+                    new InventoryEvent(InventoryEvent.EventType.LOW_STOCK_ALERT, 42L, 7, 10, LocalDateTime.now()));
+            orderEventJson = serializer.serialize("order-events",
+                    new OrderEvent(OrderEvent.EventType.CREATED, 1001L, 42L, 3, 59.97, LocalDateTime.now(),
+                            UUID.randomUUID().toString()));
+        }
+    }
+
+    @Benchmark
+    public InventoryEvent deserializeInventoryEvent() {
+        return inventoryEventDeserializer.deserialize("inventory-events", inventoryEventJson);
+    }
+
+    @Benchmark
+    public OrderEvent deserializeOrderEvent() {
+        return orderEventDeserializer.deserialize("order-events", orderEventJson);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.springapp.benchmarks;
+
+import com.example.springapp.client.InventoryClient;
+import com.example.springapp.client.ProductClient;
+import com.example.springapp.dto.InventoryDTO;
+import com.example.springapp.dto.InventoryPageDTO;
+import com.example.springapp.dto.ProductDTO;
+import com.example.springapp.dto.StockRollupDTO;
+import com.example.springapp.models.StockRecommendation;
+import com.example.springapp.service.RecommendationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RecommendationService.getLowStockAlerts over a catalog served by in-memory inventory and
+ * product clients, so the figure is the paging walk and per-alert enrichment without network.
+ * One product in ten is low on stock.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LowStockAlertsBenchmark {
+
+    private static final double THRESHOLD_PERCENT = 0.20;
+
+    @Param({"1000", "10000"})
+    int catalogSize;
+
+    private AnnotationConfigApplicationContext context;
+    private RecommendationService recommendationService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<InventoryDTO> catalog = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            InventoryDTO inventory = new InventoryDTO();
+            inventory.setId((long) i + 1);
+            inventory.setProductId(1000L + i);
+            inventory.setProductName("Product " + (1000 + i));
+            inventory.setReorderLevel(50);
+            inventory.setMaxCapacity(500);
+            inventory.setCurrentStock(i % 10 == 0 ? 5 : 200);
+            inventory.setAverageDailyConsumption(i % 20 == 0 ? 0.0 : 3.5);
+            catalog.add(inventory);
+        }
+
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(InventoryClient.class, () -> new StubInventoryClient(catalog));
+        context.registerBean(ProductClient.class, StubProductClient::new);
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.register(RecommendationService.class);
+        context.refresh();
+        recommendationService = context.getBean(RecommendationService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<StockRecommendation> getLowStockAlerts() {
+        return recommendationService.getLowStockAlerts(THRESHOLD_PERCENT);
+    }
+
+    static final class StubInventoryClient implements InventoryClient {
+
+        private final List<InventoryDTO> catalog;
+
+        StubInventoryClient(List<InventoryDTO> catalog) {
+            this.catalog = catalog;
+        }
+
+        @Override
+        public List<InventoryDTO> getAllInventory(int pageNo, int pageSize) {
+            int from = Math.min(pageNo * pageSize, catalog.size());
+            return catalog.subList(from, Math.min(from + pageSize, catalog.size()));
+        }
+
+        // The cursor is just the offset of the next page
+        @Override
+        public InventoryPageDTO getInventoryKeyset(String cursor, int size) {
+            int from = cursor != null ? Integer.parseInt(cursor) : 0;
+            int to = Math.min(from + size, catalog.size());
+            InventoryPageDTO page = new InventoryPageDTO();
+            page.setItems(catalog.subList(from, to));
+            page.setNextCursor(to < catalog.size() ? Integer.toString(to) : null);
+            return page;
+        }
+
+        @Override
+        public InventoryDTO getInventoryByProductId(Long productId) {
+            return catalog.get((int) (productId - 1000L));
+        }
+
+        @Override
+        public List<StockRollupDTO> getStockRollups(List<Long> productIds, LocalDate from, LocalDate to,
+                String transactionType) {
+            List<StockRollupDTO> days = new ArrayList<>();
+            for (Long productId : productIds) {
+                days.addAll(getStockRollups(productId, from, to, transactionType));
+            }
+            return days;
+        }
+
+        @Override
+        public List<StockRollupDTO> getStockRollups(Long productId, LocalDate from, LocalDate to, String transactionType) {
+            List<StockRollupDTO> days = new ArrayList<>();
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                StockRollupDTO rollup = new StockRollupDTO();
+                rollup.setProductId(productId);
+                rollup.setMovementDate(day);
+                rollup.setTransactionType(transactionType);
+                rollup.setUnits(-3L);
+                rollup.setTransactionCount(2L);
+                days.add(rollup);
+            }
+            return days;
+        }
+    }
+
+    static final class StubProductClient implements ProductClient {
+
+        @Override
+        public ProductDTO getProductById(Long id) {
+            ProductDTO product = new ProductDTO();
+            product.setId(id);
+            product.setName("Product " + id);
+            product.setSupplierId("S-" + (id % 50));
+            product.setSupplierName("Supplier " + (id % 50));
+            return product;
+        }
+    }
+}
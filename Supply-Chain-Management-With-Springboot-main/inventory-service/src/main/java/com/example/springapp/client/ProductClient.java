@@ -1,13 +1,18 @@
 package com.example.springapp.client;
 
 import com.example.springapp.dto.ProductDTO;
+import com.example.springapp.dto.ProductPageDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @FeignClient(name = "product-service")
 public interface ProductClient {
 
-    @GetMapping("/api/products/{id}") // Need to ensure ProductService exposes this
+    @GetMapping("/products/{id}")
     ProductDTO getProductById(@PathVariable("id") Long id);
+
+    @GetMapping("/products")
+    ProductPageDTO getProducts(@RequestParam("pageNo") int pageNo, @RequestParam("pageSize") int pageSize);
 }
@@ -1,18 +1,30 @@
 package com.example.springapp.config;
 
+import com.example.springapp.events.OrderEvent;
+import com.example.springapp.events.ProductEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
-import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * One batch listener container factory per topic, each with its own value type, concurrency
+ * and max.poll.records (kafka.listener.&lt;topic&gt;.*). Records that fail to deserialize reach
+ * the listener with a null value instead of blocking the partition.
+ */
 @Configuration
 public class KafkaConsumerConfig {
 
@@ -22,23 +34,46 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    // Boot only applies this to its own factory; off for benchmarks and tools that embed the service
+    @Value("${spring.kafka.listener.auto-startup:true}")
+    private boolean autoStartup;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, ProductEvent> productEventListenerFactory(
+            @Value("${kafka.listener.product-events.concurrency:1}") int concurrency,
+            @Value("${kafka.listener.product-events.max-poll-records:500}") int maxPollRecords) {
+        return batchListenerFactory("product-events", ProductEvent.class, concurrency, maxPollRecords);
+    }
+
     @Bean
-    public ConsumerFactory<String, Object> consumerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, OrderEvent> orderEventListenerFactory(
+            @Value("${kafka.listener.order-events.concurrency:1}") int concurrency,
+            @Value("${kafka.listener.order-events.max-poll-records:500}") int maxPollRecords) {
+        return batchListenerFactory("order-events", OrderEvent.class, concurrency, maxPollRecords);
+    }
+
+    private <T> ConcurrentKafkaListenerContainerFactory<String, T> batchListenerFactory(String listener,
+            Class<T> valueType, int concurrency, int maxPollRecords) {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
-        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
-        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.example.springapp.events.ProductEvent");
-        return new DefaultKafkaConsumerFactory<>(props);
-    }
+        props.put(ConsumerConfig.CLIENT_ID_CONFIG, groupId + "-" + listener);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
 
-    @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
+        JsonDeserializer<T> valueDeserializer = new JsonDeserializer<>(valueType, false);
+        valueDeserializer.addTrustedPackages("*");
+        DefaultKafkaConsumerFactory<String, T> consumerFactory = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new ErrorHandlingDeserializer<>(valueDeserializer));
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry, List.of(Tag.of("listener", listener))));
+
+        ConcurrentKafkaListenerContainerFactory<String, T> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        factory.setAutoStartup(autoStartup);
         return factory;
     }
 }
@@ -1,36 +1,83 @@
 package com.example.springapp.consumers;
 
+import com.example.springapp.config.KafkaListenerMetrics;
 import com.example.springapp.events.OrderEvent;
+import com.example.springapp.service.ReservationService;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 @Slf4j
 public class OrderEventConsumer {
 
-    @KafkaListener(topics = "${kafka.topic.order-events}", groupId = "${spring.kafka.consumer.group-id}")
-    public void consumeOrderEvent(OrderEvent event) {
+    private static final String LISTENER = "order-events";
+
+    private final ReservationService reservationService;
+    private final KafkaListenerMetrics listenerMetrics;
+    private final RecentEventIds recentEventIds;
+
+    public OrderEventConsumer(ReservationService reservationService, KafkaListenerMetrics listenerMetrics,
+            @Value("${kafka.listener.order-events.dedup-max-ids:100000}") int dedupMaxIds) {
+        this.reservationService = reservationService;
+        this.listenerMetrics = listenerMetrics;
+        this.recentEventIds = new RecentEventIds(dedupMaxIds);
+    }
+
+    @KafkaListener(id = "inventory-" + LISTENER, topics = "${kafka.topic.order-events}",
+            groupId = "${spring.kafka.consumer.group-id}", containerFactory = "orderEventListenerFactory")
+    public void consumeOrderEvents(List<ConsumerRecord<String, OrderEvent>> records) {
+        long start = System.nanoTime();
+        int failed = 0;
+        int duplicates = 0;
+        for (ConsumerRecord<String, OrderEvent> record : records) {
+            if (record.value() == null) {
+                log.warn("Skipping undeserializable order event at {}-{}@{}", record.topic(), record.partition(), record.offset());
+                failed++;
+                continue;
+            }
+            if (!recentEventIds.firstSeen(record.value().getEventId())) {
+                log.debug("Skipping duplicate order event {}", record.value().getEventId());
+                duplicates++;
+                continue;
+            }
+            if (!consumeOrderEvent(record.value())) {
+                failed++;
+            }
+        }
+        listenerMetrics.recordDuplicates(LISTENER, duplicates);
+        listenerMetrics.recordBatch(LISTENER, records, start, failed);
+    }
+
+    private boolean consumeOrderEvent(OrderEvent event) {
         try {
             log.info("Received order event: {} for order ID: {}", event.getEventType(), event.getOrderId());
 
             switch (event.getEventType()) {
                 case CREATED:
                     log.info("Order created: {} - Quantity: {}", event.getOrderId(), event.getQuantity());
-                    // Inventory stock reduction is already handled by REST API call in OrderService
-                    // This is for tracking/auditing purposes
+                    // Stock is reserved by the REST call in OrderService; this is for tracking/auditing purposes
                     break;
                 case CONFIRMED:
                     log.info("Order confirmed: {}", event.getOrderId());
-                    // Additional processing if needed
+                    // The reservation is committed synchronously when the order is accepted
                     break;
                 case CANCELLED:
-                    log.info("Order cancelled: {}", event.getOrderId());
-                    // Potentially restore inventory if needed
+                    log.info("Order cancelled: {} - {}", event.getOrderId(),
+                            reservationService.release("order-" + event.getOrderId()));
+                    break;
+                case ORDER_LINE:
+                    // Per-product demand for downstream analytics; stock moves through reservations
                     break;
             }
+            return true;
         } catch (Exception e) {
             log.error("Error processing order event: {}", e.getMessage(), e);
+            return false;
         }
     }
 }
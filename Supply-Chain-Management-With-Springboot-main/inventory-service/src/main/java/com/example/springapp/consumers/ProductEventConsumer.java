@@ -1,35 +1,61 @@
 package com.example.springapp.consumers;
 
+import com.example.springapp.config.KafkaListenerMetrics;
 import com.example.springapp.events.ProductEvent;
+import com.example.springapp.service.ProductCatalogReplica;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 @Slf4j
 public class ProductEventConsumer {
 
-    @KafkaListener(topics = "${kafka.topic.product-events}", groupId = "${spring.kafka.consumer.group-id}")
-    public void consumeProductEvent(ProductEvent event) {
-        try {
-            log.info("Received product event: {} for product ID: {}", event.getEventType(), event.getProductId());
+    private static final String LISTENER = "product-events";
+
+    private final ProductCatalogReplica productCatalogReplica;
+    private final KafkaListenerMetrics listenerMetrics;
+
+    public ProductEventConsumer(ProductCatalogReplica productCatalogReplica, KafkaListenerMetrics listenerMetrics) {
+        this.productCatalogReplica = productCatalogReplica;
+        this.listenerMetrics = listenerMetrics;
+    }
 
-            switch (event.getEventType()) {
-                case CREATED:
-                    log.info("Product created: {} - {}", event.getProductId(), event.getName());
-                    // Inventory might auto-create a record or wait for explicit initialization
-                    break;
-                case UPDATED:
-                    log.info("Product updated: {} - {}", event.getProductId(), event.getName());
-                    // Update product details in inventory if needed
-                    break;
-                case DELETED:
-                    log.info("Product deleted: {}", event.getProductId());
-                    // Handle product deletion in inventory
-                    break;
+    @KafkaListener(id = "inventory-" + LISTENER, topics = "${kafka.topic.product-events}",
+            groupId = "${spring.kafka.consumer.group-id}", containerFactory = "productEventListenerFactory")
+    public void consumeProductEvents(List<ConsumerRecord<String, ProductEvent>> records) {
+        long start = System.nanoTime();
+        int failed = 0;
+        List<ProductEvent> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, ProductEvent> record : records) {
+            if (record.value() == null) {
+                log.warn("Skipping undeserializable product event at {}-{}@{}", record.topic(), record.partition(), record.offset());
+                failed++;
+                continue;
             }
+            ProductEvent event = record.value();
+            log.info("Received product event: {} for product ID: {}", event.getEventType(), event.getProductId());
+            events.add(event);
+        }
+
+        // The whole poll goes into the replica in one transaction; fall back to one at a time on failure
+        try {
+            productCatalogReplica.applyAll(events);
         } catch (Exception e) {
-            log.error("Error processing product event: {}", e.getMessage(), e);
+            log.error("Error applying product events as a batch, retrying one by one: {}", e.getMessage());
+            for (ProductEvent event : events) {
+                try {
+                    productCatalogReplica.apply(event);
+                } catch (Exception ex) {
+                    log.error("Error processing product event: {}", ex.getMessage(), ex);
+                    failed++;
+                }
+            }
         }
+        listenerMetrics.recordBatch(LISTENER, records, start, failed);
     }
 }
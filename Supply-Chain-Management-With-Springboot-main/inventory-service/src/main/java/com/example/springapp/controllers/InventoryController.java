@@ -1,9 +1,14 @@
 package com.example.springapp.controllers;
 
+import com.example.springapp.dto.BatchStockRequest;
+import com.example.springapp.dto.BatchStockResponse;
+import com.example.springapp.dto.KeysetPage;
 import com.example.springapp.models.Inventory;
 import com.example.springapp.service.InventoryService;
+import com.example.springapp.service.ProductCatalogReplica;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -17,6 +22,9 @@ public class InventoryController {
     @Autowired
     InventoryService inventoryService;
 
+    @Autowired
+    ProductCatalogReplica productCatalogReplica;
+
     @PostMapping
     public String createInventory(@RequestBody Map<String, Object> request) {
         Long productId = Long.valueOf(request.get("productId").toString());
@@ -35,24 +43,48 @@ public class InventoryController {
         return inventoryService.createInventoryFromProduct(productId, productName, initialStock);
     }
 
+    @PostMapping("/product-replica/refresh")
+    public String refreshProductReplica() {
+        return "Product replica refreshed with " + productCatalogReplica.loadSnapshot() + " products";
+    }
+
     @PutMapping("/restock/{productId}")
     public String restockProduct(
             @PathVariable Long productId,
-            @RequestBody Map<String, Object> request) {
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         int quantity = Integer.parseInt(request.get("quantity").toString());
         String performedBy = request.getOrDefault("performedBy", "system").toString();
 
-        return inventoryService.restockProduct(productId, quantity, performedBy);
+        return inventoryService.restockProduct(productId, quantity, performedBy, idempotencyKey);
     }
 
     @PutMapping("/reduce/{productId}")
     public String reduceStock(
             @PathVariable Long productId,
-            @RequestBody Map<String, Object> request) {
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         int quantity = Integer.parseInt(request.get("quantity").toString());
         String performedBy = request.getOrDefault("performedBy", "system").toString();
 
-        return inventoryService.reduceStock(productId, quantity, performedBy);
+        return inventoryService.reduceStock(productId, quantity, performedBy, idempotencyKey);
+    }
+
+    @PutMapping("/reduce-batch")
+    public BatchStockResponse reduceStockBatch(@RequestBody BatchStockRequest request) {
+        return inventoryService.reduceStockBatch(request);
+    }
+
+    @PostMapping("/{productId}/stripes")
+    public String enableStripedStock(
+            @PathVariable Long productId,
+            @RequestParam(defaultValue = "8") int cells) {
+        return inventoryService.enableStripedStock(productId, cells);
+    }
+
+    @DeleteMapping("/{productId}/stripes")
+    public String disableStripedStock(@PathVariable Long productId) {
+        return inventoryService.disableStripedStock(productId);
     }
 
     @GetMapping("/{productId}")
@@ -67,11 +99,25 @@ public class InventoryController {
         return inventoryService.getAllInventory(pageNo, pageSize);
     }
 
+    @GetMapping("/keyset")
+    public KeysetPage<Inventory> getInventoryKeyset(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size) {
+        return inventoryService.getInventoryAfter(cursor, size);
+    }
+
     @GetMapping("/low-stock")
     public List<Inventory> getLowStockItems() {
         return inventoryService.getLowStockItems();
     }
 
+    @GetMapping("/low-stock/by-shortfall")
+    public List<Inventory> getLowStockItemsByShortfall(
+            @RequestParam(defaultValue = "0") int pageNo,
+            @RequestParam(defaultValue = "10") int pageSize) {
+        return inventoryService.getLowStockItemsByShortfall(pageNo, pageSize);
+    }
+
     @PutMapping("/reorder-level/{productId}")
     public String updateReorderLevel(
             @PathVariable Long productId,
@@ -87,4 +133,9 @@ public class InventoryController {
         Double consumption = Double.parseDouble(request.get("averageDailyConsumption").toString());
         return inventoryService.updateAverageDailyConsumption(productId, consumption);
     }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
 }
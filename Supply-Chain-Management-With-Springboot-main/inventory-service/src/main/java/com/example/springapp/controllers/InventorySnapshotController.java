@@ -0,0 +1,27 @@
+package com.example.springapp.controllers;
+
+import com.example.springapp.dto.DriftReport;
+import com.example.springapp.service.InventorySnapshotService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/inventory/snapshots")
+@CrossOrigin(origins = { "http://localhost:3000", "http://localhost:3001" })
+public class InventorySnapshotController {
+
+    @Autowired
+    InventorySnapshotService inventorySnapshotService;
+
+    @PostMapping
+    public String takeSnapshot() {
+        long watermark = inventorySnapshotService.takeSnapshot();
+        return "Inventory snapshot taken through transaction " + watermark;
+    }
+
+    @GetMapping("/drift")
+    public DriftReport checkDrift(@RequestParam(defaultValue = "false") boolean repair) {
+        return inventorySnapshotService.checkDrift(repair);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.springapp.controllers;
+
+import com.example.springapp.dto.BatchStockRequest;
+import com.example.springapp.dto.BatchStockResponse;
+import com.example.springapp.dto.ReservationRequest;
+import com.example.springapp.dto.ReservationResponse;
+import com.example.springapp.dto.StockAvailability;
+import com.example.springapp.service.ReservationService;
+import com.example.springapp.service.StockLevelCache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/inventory")
+@CrossOrigin(origins = { "http://localhost:3000", "http://localhost:3001" })
+public class ReservationController {
+
+    @Autowired
+    ReservationService reservationService;
+
+    @Autowired
+    StockLevelCache stockLevelCache;
+
+    @PostMapping("/reservations")
+    public ReservationResponse reserve(@RequestBody ReservationRequest request) {
+        return reservationService.reserve(request);
+    }
+
+    @PutMapping("/reservations/{reference}/commit")
+    public BatchStockResponse commit(
+            @PathVariable String reference,
+            @RequestBody(required = false) BatchStockRequest fallback,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return reservationService.commit(reference, fallback, idempotencyKey);
+    }
+
+    @DeleteMapping("/reservations/{reference}")
+    public String release(@PathVariable String reference) {
+        return reservationService.release(reference);
+    }
+
+    @GetMapping("/available/{productId}")
+    public ResponseEntity<StockAvailability> getAvailability(@PathVariable Long productId) {
+        StockAvailability availability = stockLevelCache.getAvailability(productId);
+        return availability != null ? ResponseEntity.ok(availability) : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.springapp.controllers;
+
+import com.example.springapp.models.StockMovementRollup;
+import com.example.springapp.service.StockRollupService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/inventory/rollups")
+@CrossOrigin(origins = { "http://localhost:3000", "http://localhost:3001" })
+public class StockRollupController {
+
+    @Autowired
+    StockRollupService stockRollupService;
+
+    @GetMapping("/{productId}")
+    public List<StockMovementRollup> getProductSeries(
+            @PathVariable Long productId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String transactionType) {
+        return stockRollupService.getSeries(productId, from, to, transactionType);
+    }
+
+    @GetMapping
+    public List<StockMovementRollup> getSeries(
+            @RequestParam List<Long> productIds,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String transactionType) {
+        return stockRollupService.getSeries(productIds, from, to, transactionType);
+    }
+
+    @PostMapping("/backfill")
+    public String backfill(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        long rows = stockRollupService.backfill(from, to);
+        return "Rollup rebuilt from " + from + " to " + to + ": " + rows + " rows";
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.springapp.controllers;
+
+import com.example.springapp.dto.KeysetPage;
+import com.example.springapp.models.StockTransaction;
+import com.example.springapp.service.StockTransactionService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/inventory/transactions")
+@CrossOrigin(origins = { "http://localhost:3000", "http://localhost:3001" })
+public class StockTransactionController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    StockTransactionService stockTransactionService;
+
+    @GetMapping("/{productId}/history")
+    public KeysetPage<StockTransaction> getTransactionHistory(
+            @PathVariable Long productId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        return stockTransactionService.getTransactionHistoryBefore(productId, cursor, size);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) String transactionType,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        StreamingResponseBody body = responseStream -> {
+            try (OutputStream out = gzip ? new GZIPOutputStream(responseStream, 64 * 1024)
+                    : new BufferedOutputStream(responseStream, 64 * 1024)) {
+                stockTransactionService.exportTransactions(start, end, productId, transactionType, out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, NDJSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+}
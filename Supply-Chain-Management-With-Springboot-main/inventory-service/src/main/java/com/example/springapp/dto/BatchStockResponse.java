@@ -0,0 +1,16 @@
+package com.example.springapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchStockResponse {
+    private boolean success;
+    private String message;
+    private List<StockLineResult> lines;
+}
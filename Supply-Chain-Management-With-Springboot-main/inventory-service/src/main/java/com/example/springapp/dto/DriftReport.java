@@ -0,0 +1,21 @@
+package com.example.springapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DriftReport {
+    private long throughTransactionId;
+    private int productsChecked;
+    // Products with stock but no snapshot and no ledger rows, so there is nothing to check against
+    private int productsWithoutLedger;
+    private long durationMs;
+    private List<StockDrift> drift;
+    // Set when repair was asked for but the ledger could not be trusted, so the report is read-only
+    private String repairRefused;
+}
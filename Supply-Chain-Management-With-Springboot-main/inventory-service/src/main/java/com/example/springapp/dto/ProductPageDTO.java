@@ -0,0 +1,11 @@
+package com.example.springapp.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ProductPageDTO {
+    private List<ProductDTO> content;
+    private boolean last;
+}
@@ -0,0 +1,20 @@
+package com.example.springapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationResponse {
+    private boolean success;
+    private String message;
+    private String reference;
+    private LocalDateTime expiresAt;
+    // previousStock/newStock on each line are available-to-promise before and after the hold
+    private List<StockLineResult> lines;
+}
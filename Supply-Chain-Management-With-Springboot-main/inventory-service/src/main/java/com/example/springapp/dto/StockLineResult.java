@@ -0,0 +1,17 @@
+package com.example.springapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLineResult {
+    private Long productId;
+    private Integer quantity;
+    private boolean success;
+    private Integer previousStock;
+    private Integer newStock;
+    private String message;
+}
@@ -1,30 +1,35 @@
 package com.example.springapp.events;
 
-import lombok.extern.slf4j.Slf4j;
+import com.example.springapp.config.KafkaSendMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends inventory events to Kafka. Stock changes write inventory_outbox rows instead of calling
+ * this; {@link InventoryOutboxRelay} sends them from there.
+ */
 @Service
-@Slf4j
 public class InventoryEventPublisher {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaSendMetrics sendMetrics;
 
     @Value("${kafka.topic.inventory-events}")
     private String inventoryEventsTopic;
 
-    public InventoryEventPublisher(KafkaTemplate<String, Object> kafkaTemplate) {
+    public InventoryEventPublisher(KafkaTemplate<String, Object> kafkaTemplate, KafkaSendMetrics sendMetrics) {
         this.kafkaTemplate = kafkaTemplate;
+        this.sendMetrics = sendMetrics;
     }
 
-    public void publishInventoryEvent(InventoryEvent event) {
-        try {
-            log.info("Publishing inventory event: {} for product ID: {}", event.getEventType(), event.getProductId());
-            kafkaTemplate.send(inventoryEventsTopic, event.getProductId().toString(), event);
-            log.info("Inventory event published successfully");
-        } catch (Exception e) {
-            log.error("Error publishing inventory event: {}", e.getMessage(), e);
-        }
+    // Keyed by product id so every event of a product lands on the same partition, in order
+    public CompletableFuture<SendResult<String, Object>> send(InventoryEvent event) {
+        long start = System.nanoTime();
+        return sendMetrics.track(inventoryEventsTopic, start,
+                kafkaTemplate.send(inventoryEventsTopic, event.getProductId().toString(), event));
     }
 }
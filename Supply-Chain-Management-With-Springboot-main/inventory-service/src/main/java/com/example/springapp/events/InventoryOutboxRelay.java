@@ -0,0 +1,151 @@
+package com.example.springapp.events;
+
+import com.example.springapp.models.InventoryOutboxEvent;
+import com.example.springapp.repositories.InventoryOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains inventory_outbox into the inventory-events topic off the request path, oldest row
+ * first, so a product's events reach its partition in the order the stock changed. A batch is
+ * claimed for claim-ms in a short transaction and sent after it commits, so no row lock is held
+ * while waiting for Kafka; while a claim on the head of the outbox is live, other relays wait.
+ * Rows are deleted only after Kafka acknowledged the whole batch, so delivery is at-least-once.
+ * A row that does not map to an event is parked rather than left to block the rows behind it.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "inventory.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class InventoryOutboxRelay {
+
+    private static final int PARK_REASON_LENGTH = 255;
+
+    private final InventoryOutboxRepository outboxRepository;
+    private final InventoryEventPublisher inventoryEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final Duration claimFor;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final DistributionSummary batchSizeSummary;
+    private final Counter publishedCounter;
+    private final Counter failedBatchCounter;
+    private final Counter parkedCounter;
+
+    public InventoryOutboxRelay(InventoryOutboxRepository outboxRepository,
+            InventoryEventPublisher inventoryEventPublisher, MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager,
+            @Value("${inventory.outbox.batch-size:500}") int batchSize,
+            @Value("${inventory.outbox.send-timeout-ms:10000}") long sendTimeoutMs,
+            @Value("${inventory.outbox.claim-ms:60000}") long claimMs) {
+        this.outboxRepository = outboxRepository;
+        this.inventoryEventPublisher = inventoryEventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.claimFor = Duration.ofMillis(claimMs);
+
+        Gauge.builder("inventory.outbox.lag", lagMillis, AtomicLong::get)
+                .description("Age in milliseconds of the oldest outbox row in the last relayed batch")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("inventory.outbox.batch.size")
+                .description("Inventory events relayed per batch")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder("inventory.outbox.published")
+                .description("Inventory events relayed to Kafka")
+                .register(meterRegistry);
+        this.failedBatchCounter = Counter.builder("inventory.outbox.failed.batches")
+                .description("Relay batches that were not acknowledged and will be retried")
+                .register(meterRegistry);
+        this.parkedCounter = Counter.builder("inventory.outbox.parked")
+                .description("Outbox rows parked because they do not map to an inventory event")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.outbox.poll-interval-ms:200}")
+    public void relay() {
+        List<ClaimedEvent> batch = transactionTemplate.execute(status -> claimNextBatch());
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Long> ids = batch.stream().map(ClaimedEvent::id).toList();
+
+        try {
+            List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+            for (ClaimedEvent claimed : batch) {
+                sends.add(inventoryEventPublisher.send(claimed.event()));
+            }
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            failedBatchCounter.increment();
+            log.error("Error relaying {} inventory events, will retry: {}", batch.size(), e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.releaseClaims(ids));
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.deleteAllByIdInBatch(ids));
+        batchSizeSummary.record(batch.size());
+        publishedCounter.increment(batch.size());
+    }
+
+    // Claims the unclaimed head of the outbox, parking rows that do not map to an event on the way
+    private List<ClaimedEvent> claimNextBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<InventoryOutboxEvent> rows = outboxRepository.lockNextBatch(PageRequest.of(0, batchSize));
+        if (rows.isEmpty()) {
+            lagMillis.set(0);
+            return List.of();
+        }
+        lagMillis.set(Duration.between(rows.get(0).getCreatedAt(), now).toMillis());
+
+        List<ClaimedEvent> claimed = new ArrayList<>(rows.size());
+        for (InventoryOutboxEvent row : rows) {
+            // Another relay is still sending these, and the rows behind them must not overtake them
+            if (row.getClaimedUntil() != null && row.getClaimedUntil().isAfter(now)) {
+                break;
+            }
+            InventoryEvent event;
+            try {
+                event = new InventoryEvent(
+                        InventoryEvent.EventType.valueOf(row.getEventType()),
+                        row.getProductId(),
+                        row.getQuantity(),
+                        row.getThreshold(),
+                        row.getCreatedAt());
+            } catch (RuntimeException e) {
+                row.setParkedAt(now);
+                String reason = e.toString();
+                row.setParkReason(reason.length() > PARK_REASON_LENGTH ? reason.substring(0, PARK_REASON_LENGTH) : reason);
+                parkedCounter.increment();
+                log.error("Parked inventory outbox row {} that does not map to an event: {}", row.getId(), e.toString());
+                continue;
+            }
+            row.setClaimedUntil(now.plus(claimFor));
+            claimed.add(new ClaimedEvent(row.getId(), event));
+        }
+        return claimed;
+    }
+
+    private record ClaimedEvent(Long id, InventoryEvent event) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.springapp.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * An Idempotency-Key that has been used, written in the same transaction as the change it made.
+ * The primary key is what stops a second change under the same key.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_claimed_at", columnList = "claimed_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyClaim {
+
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "fingerprint", nullable = false)
+    private String fingerprint; // what the request asked for, e.g. SALE:<productId>:<quantity>
+
+    @Column(name = "result", nullable = false, length = 500)
+    private String result; // message returned to the first request
+
+    @Column(name = "claimed_at", nullable = false)
+    private LocalDateTime claimedAt;
+}
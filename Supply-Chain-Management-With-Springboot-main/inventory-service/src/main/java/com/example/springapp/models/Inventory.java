@@ -9,7 +9,7 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "inventory")
+@Table(name = "inventory", indexes = @Index(name = "idx_inventory_stock_cells", columnList = "stock_cells"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 public class Inventory {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_seq")
+    @SequenceGenerator(name = "inventory_seq", sequenceName = "inventory_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -45,6 +46,18 @@ public class Inventory {
     @Column(name = "average_daily_consumption")
     private Double averageDailyConsumption;
 
+    // Epoch millis averageDailyConsumption was last decayed to; instances merge their sales in from there
+    @Column(name = "consumption_as_of")
+    private Long consumptionAsOf;
+
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    // Number of inventory_stock_cells rows holding this product's stock; 0 means the stock lives here
+    @Column(name = "stock_cells", nullable = false, columnDefinition = "int default 0")
+    private Integer stockCells = 0;
+
     @PrePersist
     protected void onCreate() {
         if (lastRestocked == null) {
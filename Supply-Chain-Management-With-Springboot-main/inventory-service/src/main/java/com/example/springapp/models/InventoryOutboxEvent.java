@@ -0,0 +1,58 @@
+package com.example.springapp.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "inventory_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryOutboxEvent {
+
+    // IDENTITY: the relay sends in id order, and an unstriped product's rows are inserted while its
+    // inventory row is locked, so their ids follow its stock changes
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "event_type", nullable = false)
+    private String eventType; // STOCK_UPDATED, LOW_STOCK_ALERT
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "threshold")
+    private Integer threshold;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // A relay sending the row holds it until then; one that died mid-send leaves the claim to lapse
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    // Set on a row that does not map to an event; it stays for inspection but is no longer relayed
+    @Column(name = "parked_at")
+    private LocalDateTime parkedAt;
+
+    @Column(name = "park_reason")
+    private String parkReason;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
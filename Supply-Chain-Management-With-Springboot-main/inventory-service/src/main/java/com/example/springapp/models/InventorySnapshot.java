@@ -0,0 +1,35 @@
+package com.example.springapp.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock of one product as folded from the ledger up to and including transaction
+ * throughTransactionId. All rows of a snapshot share the same watermark.
+ */
+@Entity
+@Table(name = "inventory_snapshots")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventorySnapshot {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "stock", nullable = false)
+    private Integer stock;
+
+    @Column(name = "through_transaction_id", nullable = false)
+    private Long throughTransactionId;
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+}
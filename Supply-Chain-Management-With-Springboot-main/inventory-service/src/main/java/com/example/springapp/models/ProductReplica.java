@@ -0,0 +1,34 @@
+package com.example.springapp.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "product_replica")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductReplica {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "category")
+    private String category;
+
+    @Column(name = "price")
+    private Double price;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,35 @@
+package com.example.springapp.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One slice of a striped product's stock. Decrements lock a single cell instead of the
+ * inventory row; the product's stock is the sum of its cells.
+ */
+@Entity
+@Table(name = "inventory_stock_cells", uniqueConstraints = @UniqueConstraint(
+        name = "uk_inventory_stock_cells", columnNames = { "product_id", "cell_index" }))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockCell {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "cell_index", nullable = false)
+    private Integer cellIndex;
+
+    @Column(name = "units", nullable = false)
+    private Integer units;
+}
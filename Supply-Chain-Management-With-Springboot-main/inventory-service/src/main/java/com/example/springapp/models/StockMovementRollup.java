@@ -0,0 +1,45 @@
+package com.example.springapp.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "stock_movement_daily", uniqueConstraints = @UniqueConstraint(
+        name = "uk_stock_movement_daily", columnNames = { "product_id", "movement_date", "transaction_type" }))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "movement_date", nullable = false)
+    private LocalDate movementDate;
+
+    @Column(name = "transaction_type", nullable = false)
+    private String transactionType;
+
+    @Column(name = "units", nullable = false)
+    private Long units; // net quantity, negative for SALE
+
+    @Column(name = "transaction_count", nullable = false)
+    private Long transactionCount;
+
+    @Column(name = "min_stock", nullable = false)
+    private Integer minStock;
+
+    @Column(name = "max_stock", nullable = false)
+    private Integer maxStock;
+}
@@ -9,7 +9,8 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "stock_transactions")
+@Table(name = "stock_transactions", indexes = @Index(
+        name = "idx_stock_transactions_product_date", columnList = "product_id, transaction_date, id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -25,7 +26,7 @@ public class StockTransaction {
     private Long productId;
 
     @Column(name = "transaction_type", nullable = false)
-    private String transactionType; // RESTOCK, SALE, DAMAGED, RETURNED
+    private String transactionType; // RESTOCK, SALE, DAMAGED, RETURNED, ADJUSTMENT (drift repair)
 
     @Column(name = "quantity", nullable = false)
     private Integer quantity;
@@ -45,6 +46,10 @@ public class StockTransaction {
     @Column(name = "notes", length = 500)
     private String notes;
 
+    // Idempotency-Key of the request that made this change; batch lines get key#lineIndex
+    @Column(name = "idempotency_key", length = 120, unique = true)
+    private String idempotencyKey;
+
     @PrePersist
     protected void onCreate() {
         if (transactionDate == null) {
@@ -0,0 +1,27 @@
+package com.example.springapp.repositories;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.springapp.models.InventoryOutboxEvent;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface InventoryOutboxRepository extends JpaRepository<InventoryOutboxEvent, Long> {
+
+    // One claimer at a time: a second relay instance blocks on the first batch rather than skipping
+    // past it, since the rows it would take could hold a later stock level of the same product
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM InventoryOutboxEvent e WHERE e.parkedAt IS NULL ORDER BY e.id")
+    List<InventoryOutboxEvent> lockNextBatch(Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE InventoryOutboxEvent e SET e.claimedUntil = NULL WHERE e.id IN :ids")
+    int releaseClaims(@Param("ids") Collection<Long> ids);
+}
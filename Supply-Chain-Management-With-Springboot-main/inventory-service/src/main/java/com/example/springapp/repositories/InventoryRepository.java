@@ -1,19 +1,81 @@
 package com.example.springapp.repositories;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.springapp.models.Inventory;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     Optional<Inventory> findByProductId(Long productId);
+
+    List<Inventory> findByProductIdIn(Collection<Long> productIds);
+
+    List<Inventory> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
     
     @Query("SELECT i FROM Inventory i WHERE i.currentStock < i.reorderLevel")
     List<Inventory> findLowStockItems();
     
     @Query("SELECT i FROM Inventory i WHERE i.currentStock < :threshold")
     List<Inventory> findByCurrentStockLessThan(Integer threshold);
+
+    // Single-statement stock change; the guards make it a no-op (0 rows) instead of a lost update.
+    // Striped products are excluded, their stock is changed through StripedStockService
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.currentStock = i.currentStock + :quantity, i.version = i.version + 1 " +
+            "WHERE i.productId = :productId AND i.stockCells = 0 " +
+            "AND i.currentStock + :quantity >= 0 AND i.currentStock + :quantity <= i.maxCapacity")
+    int adjustStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.currentStock = i.currentStock + :quantity, i.lastRestocked = :restockedAt, " +
+            "i.version = i.version + 1 " +
+            "WHERE i.productId = :productId AND i.stockCells = 0 " +
+            "AND i.currentStock + :quantity >= 0 AND i.currentStock + :quantity <= i.maxCapacity")
+    int adjustStockAndMarkRestocked(@Param("productId") Long productId, @Param("quantity") int quantity,
+            @Param("restockedAt") LocalDateTime restockedAt);
+
+    // Drift repair: sets the stock only while it still holds the value the drift check saw
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.currentStock = :stock, i.version = i.version + 1 " +
+            "WHERE i.productId = :productId AND i.stockCells = 0 AND i.currentStock = :expectedStock")
+    int setStockIfUnchanged(@Param("productId") Long productId, @Param("expectedStock") int expectedStock,
+            @Param("stock") int stock);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.productName = :productName, i.version = i.version + 1 " +
+            "WHERE i.productId = :productId AND (i.productName IS NULL OR i.productName <> :productName)")
+    int updateProductName(@Param("productId") Long productId, @Param("productName") String productName);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Inventory i SET i.lastRestocked = :restockedAt, i.version = i.version + 1 " +
+            "WHERE i.productId = :productId")
+    int markRestocked(@Param("productId") Long productId, @Param("restockedAt") LocalDateTime restockedAt);
+
+    // Striped rows only mirror their cells, so their live on-hand is summed from inventory_stock_cells
+    String LIVE_STOCK_SQL = "SELECT i.product_id, CASE WHEN i.stock_cells > 0 THEN " +
+            "(SELECT COALESCE(SUM(c.units), 0) FROM inventory_stock_cells c WHERE c.product_id = i.product_id) " +
+            "ELSE i.current_stock END FROM inventory i";
+
+    @Query(value = LIVE_STOCK_SQL, nativeQuery = true)
+    List<Object[]> findStockLevels();
+
+    @Query(value = LIVE_STOCK_SQL + " WHERE i.product_id = :productId", nativeQuery = true)
+    List<Object[]> findStockLevel(@Param("productId") Long productId);
+
+    // Locks are taken in product-id order so concurrent baskets cannot deadlock each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.productId IN :productIds ORDER BY i.productId")
+    List<Inventory> lockByProductIdsInOrder(@Param("productIds") Collection<Long> productIds);
 }
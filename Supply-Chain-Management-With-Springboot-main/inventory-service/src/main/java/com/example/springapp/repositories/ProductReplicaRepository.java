@@ -0,0 +1,8 @@
+package com.example.springapp.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.example.springapp.models.ProductReplica;
+
+public interface ProductReplicaRepository extends JpaRepository<ProductReplica, Long> {
+}
@@ -0,0 +1,23 @@
+package com.example.springapp.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.example.springapp.models.StockMovementRollup;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface StockMovementRollupRepository extends JpaRepository<StockMovementRollup, Long> {
+    List<StockMovementRollup> findByProductIdAndMovementDateBetweenOrderByMovementDate(
+            Long productId, LocalDate from, LocalDate to);
+
+    List<StockMovementRollup> findByProductIdAndTransactionTypeAndMovementDateBetweenOrderByMovementDate(
+            Long productId, String transactionType, LocalDate from, LocalDate to);
+
+    List<StockMovementRollup> findByProductIdInAndMovementDateBetweenOrderByProductIdAscMovementDateAsc(
+            Collection<Long> productIds, LocalDate from, LocalDate to);
+
+    List<StockMovementRollup> findByProductIdInAndTransactionTypeAndMovementDateBetweenOrderByProductIdAscMovementDateAsc(
+            Collection<Long> productIds, String transactionType, LocalDate from, LocalDate to);
+}
@@ -3,6 +3,8 @@ package com.example.springapp.repositories;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.springapp.models.StockTransaction;
 
@@ -13,4 +15,25 @@ public interface StockTransactionRepository extends JpaRepository<StockTransacti
     Page<StockTransaction> findByProductIdOrderByTransactionDateDesc(Long productId, Pageable pageable);
     List<StockTransaction> findByTransactionDateBetween(LocalDateTime start, LocalDateTime end);
     List<StockTransaction> findByProductIdAndTransactionType(Long productId, String transactionType);
+
+    @Query("SELECT t FROM StockTransaction t WHERE t.productId = :productId " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<StockTransaction> findLatestByProductId(@Param("productId") Long productId, Pageable pageable);
+
+    // Seek past the last (transactionDate, id) the caller saw instead of skipping rows with OFFSET
+    @Query("SELECT t FROM StockTransaction t WHERE t.productId = :productId " +
+            "AND (t.transactionDate < :transactionDate OR (t.transactionDate = :transactionDate AND t.id < :id)) " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<StockTransaction> findByProductIdBefore(@Param("productId") Long productId,
+            @Param("transactionDate") LocalDateTime transactionDate, @Param("id") Long id, Pageable pageable);
+
+    // One export page: seeks past the last id written instead of holding a cursor open between pages
+    @Query("SELECT t FROM StockTransaction t " +
+            "WHERE t.id > :afterId AND t.transactionDate >= :start AND t.transactionDate < :end " +
+            "AND (:productId IS NULL OR t.productId = :productId) " +
+            "AND (:transactionType IS NULL OR t.transactionType = :transactionType) " +
+            "ORDER BY t.id")
+    List<StockTransaction> findExportPage(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+            @Param("productId") Long productId, @Param("transactionType") String transactionType,
+            @Param("afterId") Long afterId, Pageable pageable);
 }
@@ -0,0 +1,136 @@
+package com.example.springapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live per-product consumption rate, an exponentially weighted moving average over SALE
+ * transactions. The daily rate is S * lambda, where S is a decayed sum of units sold: a sale of
+ * q units at time t does S = S * exp(-lambda * (t - last)) + q, and lambda = ln 2 / half-life.
+ * S is linear in the sales, so each instance only keeps S for the sales it saw since its last
+ * checkpoint, O(1) per sale under that product's lock, and the checkpoint adds it to
+ * inventory.average_daily_consumption after decaying the stored rate from consumption_as_of.
+ * The row holds the rate over every instance's sales; no instance overwrites another's share.
+ */
+@Service
+@Slf4j
+public class ConsumptionRateEngine {
+
+    private static final double MILLIS_PER_DAY = 86_400_000d;
+    private static final double CHECKPOINT_TOLERANCE = 0.01;
+    private static final double RATE_FLOOR = 1e-3;
+
+    // Decays the stored rate to now, then adds this instance's rate over its unmerged sales
+    private static final String MERGE_SQL = "UPDATE inventory SET average_daily_consumption = "
+            + "COALESCE(average_daily_consumption, 0) "
+            + "* EXP(CAST(? AS DOUBLE) * GREATEST(? - COALESCE(consumption_as_of, ?), 0)) + ?, "
+            + "consumption_as_of = GREATEST(COALESCE(consumption_as_of, ?), ?), version = version + 1 "
+            + "WHERE product_id = ?";
+
+    // Products nobody sold for a while; each instance may run it, a row already decayed no longer matches
+    private static final String DECAY_SQL = "UPDATE inventory SET average_daily_consumption = "
+            + "average_daily_consumption * EXP(CAST(? AS DOUBLE) * (? - COALESCE(consumption_as_of, ?))), "
+            + "consumption_as_of = ?, version = version + 1 "
+            + "WHERE average_daily_consumption > ? AND (consumption_as_of IS NULL OR consumption_as_of < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final double lambdaPerDay;
+    // Time for a rate to decay by the checkpoint tolerance, so idle rates are rewritten at most that often
+    private final long decayStepMillis;
+    private final ConcurrentHashMap<Long, PendingSales> pending = new ConcurrentHashMap<>();
+
+    public ConsumptionRateEngine(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            @Value("${inventory.consumption.half-life-days:7}") double halfLifeDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lambdaPerDay = Math.log(2) / halfLifeDays;
+        this.decayStepMillis = (long) (-Math.log(1 - CHECKPOINT_TOLERANCE) / lambdaPerDay * MILLIS_PER_DAY);
+    }
+
+    public void recordSale(long productId, int units, LocalDateTime at) {
+        add(productId, units, at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    // A rate set by hand replaces the stored one, including what this instance had not merged yet
+    public void discardPending(long productId) {
+        pending.remove(productId);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.consumption.checkpoint-interval-ms:300000}",
+            initialDelayString = "${inventory.consumption.checkpoint-interval-ms:300000}")
+    public void checkpoint() {
+        long now = System.currentTimeMillis();
+        double decayPerMilli = -lambdaPerDay / MILLIS_PER_DAY;
+        List<Object[]> merges = new ArrayList<>();
+        for (Long productId : pending.keySet()) {
+            PendingSales sales = pending.remove(productId);
+            if (sales != null) {
+                merges.add(new Object[] { decayPerMilli, now, now, rateAt(sales, now), now, now, productId });
+            }
+        }
+        try {
+            int decayed = transactionTemplate.execute(status -> {
+                if (!merges.isEmpty()) {
+                    jdbcTemplate.batchUpdate(MERGE_SQL, merges);
+                }
+                return jdbcTemplate.update(DECAY_SQL, decayPerMilli, now, now, now, RATE_FLOOR, now - decayStepMillis);
+            });
+            if (!merges.isEmpty() || decayed > 0) {
+                log.info("Checkpointed consumption rate for {} products with sales, decayed {} idle",
+                        merges.size(), decayed);
+            }
+        } catch (DataAccessException e) {
+            // Nothing was merged, so the sales go back to be merged on the next checkpoint
+            for (Object[] merge : merges) {
+                add((Long) merge[6], (Double) merge[3] / lambdaPerDay, now);
+            }
+            log.warn("Consumption rate checkpoint failed, retrying {} products next time: {}",
+                    merges.size(), e.getMessage());
+        }
+    }
+
+    private void add(long productId, double units, long atMillis) {
+        // compute holds the product's entry while it runs, so sales of other products do not wait
+        pending.compute(productId, (id, sales) -> {
+            if (sales == null) {
+                sales = new PendingSales();
+                sales.lastMillis = atMillis;
+            }
+            // Late rows (older than the last one seen) are decayed forward instead of rewinding the clock
+            long elapsed = atMillis - sales.lastMillis;
+            if (elapsed >= 0) {
+                sales.decayedUnits = sales.decayedUnits * decay(elapsed) + units;
+                sales.lastMillis = atMillis;
+            } else {
+                sales.decayedUnits += units * decay(-elapsed);
+            }
+            return sales;
+        });
+    }
+
+    private double rateAt(PendingSales sales, long nowMillis) {
+        return sales.decayedUnits * decay(Math.max(0, nowMillis - sales.lastMillis)) * lambdaPerDay;
+    }
+
+    private double decay(long elapsedMillis) {
+        return Math.exp(-lambdaPerDay * elapsedMillis / MILLIS_PER_DAY);
+    }
+
+    private static final class PendingSales {
+        double decayedUnits;
+        long lastMillis;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.springapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Durable side of Idempotency-Key handling. A change made under a key inserts the key into
+ * idempotency_keys in its own transaction, so it commits at most once per key whichever
+ * instance runs it and whether or not {@link IdempotencyKeyStore} still remembers the key.
+ * A second attempt fails on the primary key (on MySQL it waits for the first to commit),
+ * rolls its change back and answers with the result recorded by the first. Keys are kept for
+ * the same ttl-seconds as the key store, then purged in batches.
+ */
+@Service
+@Slf4j
+public class IdempotencyClaims {
+
+    private static final String INSERT_SQL = "INSERT INTO idempotency_keys "
+            + "(idempotency_key, fingerprint, result, claimed_at) VALUES (?, ?, ?, ?)";
+
+    private static final String FIND_SQL = "SELECT fingerprint, result FROM idempotency_keys WHERE idempotency_key = ?";
+
+    private static final String PURGE_SQL = "DELETE FROM idempotency_keys WHERE claimed_at < ? LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlSeconds;
+    private final int purgeBatchSize;
+
+    public IdempotencyClaims(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            @Value("${inventory.idempotency.ttl-seconds:86400}") long ttlSeconds,
+            @Value("${inventory.idempotency.purge-batch-size:1000}") int purgeBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttlSeconds = ttlSeconds;
+        this.purgeBatchSize = purgeBatchSize;
+    }
+
+    /**
+     * Runs change in a transaction and, when succeeded accepts its result, claims key in that
+     * same transaction. A result that is not accepted rolls the transaction back, leaving the
+     * key free for a retry. If the key was claimed first by another request, the change is
+     * rolled back and the recorded result is returned through replay.
+     */
+    public <T> T runOnce(String key, String fingerprint, Supplier<T> change, Predicate<T> succeeded,
+            Function<T, String> recordAs, Function<String, T> replay) {
+        try {
+            return transactionTemplate.execute(status -> {
+                T result = change.get();
+                if (succeeded.test(result)) {
+                    jdbcTemplate.update(INSERT_SQL, key, fingerprint, recordAs.apply(result),
+                            Timestamp.valueOf(LocalDateTime.now()));
+                } else {
+                    status.setRollbackOnly();
+                }
+                return result;
+            });
+        } catch (DuplicateKeyException e) {
+            return find(key, fingerprint).map(replay).orElseThrow(() -> e);
+        }
+    }
+
+    /** The result recorded for key, if it was claimed; rejects a key claimed for a different request. */
+    public Optional<String> find(String key, String fingerprint) {
+        List<String[]> claims = jdbcTemplate.query(FIND_SQL,
+                (rs, rowNum) -> new String[] { rs.getString(1), rs.getString(2) }, key);
+        if (claims.isEmpty()) {
+            return Optional.empty();
+        }
+        if (!claims.get(0)[0].equals(fingerprint)) {
+            throw new IllegalArgumentException("Idempotency-Key " + key + " was already used for a different request");
+        }
+        return Optional.of(claims.get(0)[1]);
+    }
+
+    /**
+     * Deletes keys claimed more than ttl-seconds ago. Each batch is its own statement, so the
+     * purge never holds more than purge-batch-size row locks against requests claiming keys.
+     */
+    @Scheduled(fixedDelayString = "${inventory.idempotency.purge-interval-ms:600000}",
+            initialDelayString = "${inventory.idempotency.purge-interval-ms:600000}")
+    public int purgeExpired() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusSeconds(ttlSeconds));
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_SQL, cutoff, purgeBatchSize);
+            purged += deleted;
+        } while (deleted == purgeBatchSize);
+        if (purged > 0) {
+            log.info("Purged {} idempotency keys claimed before {}", purged, cutoff);
+        }
+        return purged;
+    }
+}
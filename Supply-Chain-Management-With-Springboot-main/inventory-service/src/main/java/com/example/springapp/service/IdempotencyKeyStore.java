@@ -0,0 +1,157 @@
+package com.example.springapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, expiring record of recently seen Idempotency-Key values and the result each produced.
+ * Least recently used keys are dropped past max-keys, and keys older than ttl-seconds are dropped
+ * on access. A key that is still running makes duplicates wait for its result instead of running
+ * twice. Keys the store has forgotten fall back to the recorded lookup, which reads the
+ * idempotency_keys table through {@link IdempotencyClaims}.
+ */
+@Service
+public class IdempotencyKeyStore {
+
+    public static final int MAX_KEY_LENGTH = 100;
+
+    private final int maxKeys;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+    private final Counter replayedFromMemory;
+    private final Counter replayedFromClaims;
+
+    public IdempotencyKeyStore(MeterRegistry meterRegistry,
+            @Value("${inventory.idempotency.max-keys:100000}") int maxKeys,
+            @Value("${inventory.idempotency.ttl-seconds:86400}") long ttlSeconds) {
+        this.maxKeys = maxKeys;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > IdempotencyKeyStore.this.maxKeys;
+            }
+        };
+
+        Gauge.builder("inventory.idempotency.keys", this, IdempotencyKeyStore::size)
+                .description("Idempotency keys currently remembered")
+                .register(meterRegistry);
+        this.replayedFromMemory = Counter.builder("inventory.idempotency.replays")
+                .description("Duplicate requests answered with the original result")
+                .tag("source", "memory")
+                .register(meterRegistry);
+        this.replayedFromClaims = Counter.builder("inventory.idempotency.replays")
+                .description("Duplicate requests answered with the original result")
+                .tag("source", "claims")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs action at most once per key. The fingerprint describes the request; reusing a key for
+     * a different request is rejected. Only results accepted by remember are kept, so a request
+     * that changed nothing (insufficient stock, say) can be retried with the same key.
+     */
+    public <T> T execute(String key, String fingerprint, Supplier<T> recorded, Supplier<T> action,
+            Predicate<T> remember) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+
+        Entry entry;
+        boolean owner = false;
+        synchronized (this) {
+            long now = System.nanoTime();
+            evictExpired(now);
+            entry = entries.get(key);
+            if (entry != null && entry.expired(now, ttlNanos)) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry(fingerprint, now);
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+        if (!entry.fingerprint.equals(fingerprint)) {
+            throw new IllegalArgumentException("Idempotency-Key " + key + " was already used for a different request");
+        }
+        if (!owner) {
+            replayedFromMemory.increment();
+            try {
+                @SuppressWarnings("unchecked")
+                T result = (T) entry.result.join();
+                return result;
+            } catch (CompletionException e) {
+                // The original attempt failed and was forgotten; surface the same error
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            T result = recorded.get();
+            if (result != null) {
+                replayedFromClaims.increment();
+            } else {
+                result = action.get();
+            }
+            if (!remember.test(result)) {
+                forget(key, entry);
+            }
+            entry.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            forget(key, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void forget(String key, Entry entry) {
+        entries.remove(key, entry);
+    }
+
+    // Access order puts the least recently used first, so stop at the first live entry
+    private void evictExpired(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (!entry.expired(now, ttlNanos)) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final long createdNanos;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Entry(String fingerprint, long createdNanos) {
+            this.fingerprint = fingerprint;
+            this.createdNanos = createdNanos;
+        }
+
+        // A key still running never expires, so duplicates keep waiting for it
+        private boolean expired(long now, long ttlNanos) {
+            return now - createdNanos >= ttlNanos && result.isDone();
+        }
+    }
+}
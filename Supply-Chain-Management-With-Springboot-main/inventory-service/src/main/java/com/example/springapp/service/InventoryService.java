@@ -1,44 +1,116 @@
 package com.example.springapp.service;
 
+import com.example.springapp.events.InventoryEvent;
 import com.example.springapp.models.Inventory;
+import com.example.springapp.models.InventoryOutboxEvent;
+import com.example.springapp.models.ProductReplica;
 // import com.example.springapp.models.Product; // Removed
 import com.example.springapp.models.StockTransaction;
+import com.example.springapp.repositories.InventoryOutboxRepository;
 import com.example.springapp.repositories.InventoryRepository;
 // import com.example.springapp.repositories.ProductRepository; // Removed
 import com.example.springapp.client.ProductClient;
+import com.example.springapp.config.OutcomeTimers;
+import com.example.springapp.dto.BatchStockRequest;
+import com.example.springapp.dto.BatchStockResponse;
+import com.example.springapp.dto.KeysetPage;
 import com.example.springapp.dto.ProductDTO;
+import com.example.springapp.dto.StockLineRequest;
+import com.example.springapp.dto.StockLineResult;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
 @Service
 public class InventoryService {
 
+    private static final int MAX_OPTIMISTIC_ATTEMPTS = 3;
+
+    private static final int MAX_KEYSET_PAGE_SIZE = 1000;
+
     @Autowired
     InventoryRepository inventoryRepository;
 
     @Autowired
     ProductClient productClient;
 
+    @Autowired
+    ProductCatalogReplica productCatalogReplica;
+
     @Autowired
     StockTransactionService stockTransactionService;
 
+    @Autowired
+    LowStockIndex lowStockIndex;
+
+    @Autowired
+    InventoryOutboxRepository inventoryOutboxRepository;
+
+    @Autowired
+    ConsumptionRateEngine consumptionRateEngine;
+
+    @Autowired
+    StockLevelCache stockLevelCache;
+
+    @Autowired
+    StripedStockService stripedStockService;
+
+    @Autowired
+    IdempotencyKeyStore idempotencyKeyStore;
+
+    @Autowired
+    IdempotencyClaims idempotencyClaims;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private OutcomeTimers stockUpdateTimers;
+
+    @PostConstruct
+    void registerMetrics() {
+        stockUpdateTimers = new OutcomeTimers(meterRegistry, "inventory.stock.update",
+                "Time to apply one stock change, excluding commit");
+    }
+
     public String createInventoryForProduct(Long productId, int reorderLevel, int maxCapacity, String location) {
-        ProductDTO product;
-        try {
-            product = productClient.getProductById(productId);
-        } catch (Exception e) {
-            return "Product not found (Service unavailable or invalid ID)";
-        }
+        // Prefer the local replica; only fall back to product-service for products we have not seen yet
+        String productName = productCatalogReplica.find(productId).map(ProductReplica::getName).orElse(null);
+        if (productName == null) {
+            ProductDTO product;
+            try {
+                product = productClient.getProductById(productId);
+            } catch (Exception e) {
+                return "Product not found (Service unavailable or invalid ID)";
+            }
 
-        if (product == null) {
-            return "Product not found";
+            if (product == null) {
+                return "Product not found";
+            }
+            productCatalogReplica.remember(product);
+            productName = product.getName();
         }
 
         if (inventoryRepository.findByProductId(productId).isPresent()) {
@@ -47,39 +119,130 @@ public class InventoryService {
 
         Inventory inventory = new Inventory();
         inventory.setProductId(productId);
-        inventory.setProductName(product.getName());
+        inventory.setProductName(productName);
         inventory.setCurrentStock(0);
         inventory.setReorderLevel(reorderLevel);
         inventory.setMaxCapacity(maxCapacity);
         inventory.setLocation(location);
-        inventoryRepository.save(inventory);
+        lowStockIndex.update(inventoryRepository.save(inventory));
+        stockLevelCache.put(productId, 0);
 
-        return "Inventory created successfully for product: " + product.getName();
+        return "Inventory created successfully for product: " + productName;
     }
 
     @Transactional
     public String updateStock(Long productId, int quantity, String type, String performedBy, String notes) {
-        Inventory inventory = inventoryRepository.findByProductId(productId).orElse(null);
-        if (inventory == null) {
-            return "Inventory not found for this product";
+        return updateStock(productId, quantity, type, performedBy, notes, null);
+    }
+
+    @Transactional
+    public String updateStock(Long productId, int quantity, String type, String performedBy, String notes,
+            String idempotencyKey) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            String result = applyStockChange(productId, quantity, type, performedBy, notes, idempotencyKey);
+            outcome = stockUpdateOutcome(result);
+            return result;
+        } finally {
+            stockUpdateTimers.record(outcome, start);
         }
+    }
 
-        int previousStock = inventory.getCurrentStock();
-        int newStock = previousStock + quantity;
+    private String applyStockChange(Long productId, int quantity, String type, String performedBy, String notes,
+            String idempotencyKey) {
+        // A sale may only take units nobody has reserved
+        if ("SALE".equals(type) && quantity < 0) {
+            StockLineResult hold = stockLevelCache.holdUntilCompletion(new TreeMap<>(Map.of(productId, -quantity))).get(0);
+            if (!hold.isSuccess()) {
+                return hold.getMessage();
+            }
+        }
 
-        if (newStock < 0) {
-            return "Insufficient stock. Current stock: " + previousStock;
+        if (stripedStockService.isStriped(productId)) {
+            String result = updateStripedStock(productId, quantity, type, performedBy, notes, idempotencyKey);
+            if (result != null) {
+                return result;
+            }
         }
 
-        if (newStock > inventory.getMaxCapacity()) {
+        int updated = quantity > 0 && "RESTOCK".equals(type)
+                ? inventoryRepository.adjustStockAndMarkRestocked(productId, quantity, LocalDateTime.now())
+                : inventoryRepository.adjustStock(productId, quantity);
+
+        if (updated == 0) {
+            Inventory inventory = inventoryRepository.findByProductId(productId).orElse(null);
+            if (inventory == null) {
+                return "Inventory not found for this product";
+            }
+            if (inventory.getStockCells() > 0) {
+                String result = updateStripedStock(productId, quantity, type, performedBy, notes, idempotencyKey);
+                if (result != null) {
+                    return result;
+                }
+            }
+            if (inventory.getCurrentStock() + quantity < 0) {
+                return "Insufficient stock. Current stock: " + inventory.getCurrentStock();
+            }
             return "Exceeds maximum capacity. Max capacity: " + inventory.getMaxCapacity();
         }
 
-        inventory.setCurrentStock(newStock);
+        // The row stays locked by our UPDATE until commit, so this read sees exactly our result
+        Inventory updatedInventory = inventoryRepository.findByProductId(productId).orElseThrow();
+        return recordStockChange(updatedInventory, updatedInventory.getCurrentStock() - quantity,
+                quantity, type, performedBy, notes, idempotencyKey);
+    }
+
+    // Striped products change one stock cell; the inventory row is only read. Returns null when
+    // the product turned out not to be striped (any more), so the caller takes the row path
+    private String updateStripedStock(Long productId, int quantity, String type, String performedBy, String notes,
+            String idempotencyKey) {
+        Inventory inventory = inventoryRepository.findByProductId(productId).orElse(null);
+        if (inventory == null) {
+            return "Inventory not found for this product";
+        }
+        StripedStockService.Adjustment adjustment = stripedStockService.adjust(productId, quantity, inventory.getMaxCapacity());
+        switch (adjustment.status()) {
+            case NOT_STRIPED:
+                return null;
+            case INSUFFICIENT:
+                return "Insufficient stock. Current stock: " + adjustment.previousTotal();
+            case EXCEEDS_CAPACITY:
+                return "Exceeds maximum capacity. Max capacity: " + inventory.getMaxCapacity();
+            default:
+                break;
+        }
         if (quantity > 0 && "RESTOCK".equals(type)) {
-            inventory.setLastRestocked(LocalDateTime.now());
+            inventoryRepository.markRestocked(productId, LocalDateTime.now());
         }
-        inventoryRepository.saveAndFlush(inventory);
+        Inventory snapshot = LowStockIndex.copyOf(inventory);
+        snapshot.setCurrentStock(adjustment.newTotal());
+        return recordStockChange(snapshot, adjustment.previousTotal(), quantity, type, performedBy, notes,
+                idempotencyKey);
+    }
+
+    /**
+     * Sets an unstriped product's stock to stock if it still holds expectedStock, recording the
+     * difference as an ADJUSTMENT. Returns false when the stock moved in the meantime.
+     */
+    @Transactional
+    public boolean adjustStockTo(Long productId, int expectedStock, int stock, String performedBy, String notes) {
+        if (inventoryRepository.setStockIfUnchanged(productId, expectedStock, stock) == 0) {
+            return false;
+        }
+        Inventory updatedInventory = inventoryRepository.findByProductId(productId).orElseThrow();
+        recordStockChange(updatedInventory, expectedStock, stock - expectedStock, "ADJUSTMENT", performedBy,
+                notes, null);
+        return true;
+    }
+
+    private String recordStockChange(Inventory updatedInventory, int previousStock, int quantity, String type,
+            String performedBy, String notes, String idempotencyKey) {
+        Long productId = updatedInventory.getProductId();
+        int newStock = updatedInventory.getCurrentStock();
+        lowStockIndex.updateAfterCommit(updatedInventory);
+        stockLevelCache.applyAfterCommit(productId, quantity);
+        recordInventoryEvents(updatedInventory, previousStock);
 
         // Record transaction
         StockTransaction transaction = new StockTransaction();
@@ -90,21 +253,270 @@ public class InventoryService {
         transaction.setNewStock(newStock);
         transaction.setPerformedBy(performedBy);
         transaction.setNotes(notes);
+        transaction.setIdempotencyKey(idempotencyKey);
         stockTransactionService.recordTransaction(transaction);
 
+        return stockUpdatedMessage(newStock);
+    }
+
+    private static String stockUpdatedMessage(int newStock) {
         return "Stock updated successfully. New stock: " + newStock;
     }
 
+    private static String stockUpdateOutcome(String result) {
+        if (result.startsWith("Stock updated")) {
+            return "updated";
+        }
+        if (result.startsWith("Insufficient stock")) {
+            return "insufficient";
+        }
+        if (result.startsWith("Exceeds maximum capacity")) {
+            return "over_capacity";
+        }
+        return "not_found";
+    }
+
+    @Transactional
     public String restockProduct(Long productId, int quantity, String performedBy) {
         return updateStock(productId, quantity, "RESTOCK", performedBy, "Product restocked");
     }
 
+    @Transactional
     public String reduceStock(Long productId, int quantity, String performedBy) {
         return updateStock(productId, -quantity, "SALE", performedBy, "Stock reduced for sale");
     }
 
+    public String restockProduct(Long productId, int quantity, String performedBy, String idempotencyKey) {
+        return updateStockOnce(idempotencyKey, productId, quantity, "RESTOCK", performedBy, "Product restocked");
+    }
+
+    public String reduceStock(Long productId, int quantity, String performedBy, String idempotencyKey) {
+        return updateStockOnce(idempotencyKey, productId, -quantity, "SALE", performedBy, "Stock reduced for sale");
+    }
+
+    /**
+     * Applies a stock change at most once per idempotency key. A repeat returns the first
+     * result, from the key store while it remembers the key and from idempotency_keys after
+     * that. The key is claimed in the same transaction as the change.
+     */
+    private String updateStockOnce(String idempotencyKey, Long productId, int quantity, String type,
+            String performedBy, String notes) {
+        if (idempotencyKey == null) {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            return transactionTemplate.execute(status -> updateStock(productId, quantity, type, performedBy, notes));
+        }
+        String fingerprint = type + ":" + productId + ":" + quantity;
+        return idempotencyKeyStore.execute(idempotencyKey, fingerprint,
+                () -> idempotencyClaims.find(idempotencyKey, fingerprint).orElse(null),
+                () -> idempotencyClaims.runOnce(idempotencyKey, fingerprint,
+                        () -> updateStock(productId, quantity, type, performedBy, notes, idempotencyKey),
+                        InventoryService::isStockUpdated, result -> result, result -> result),
+                InventoryService::isStockUpdated);
+    }
+
+    private static boolean isStockUpdated(String result) {
+        return result.startsWith("Stock updated");
+    }
+
+    @Transactional
+    public BatchStockResponse reduceStockBatch(BatchStockRequest request) {
+        return reduceStockBatch(request, null);
+    }
+
+    /**
+     * As {@link #reduceStockBatch(BatchStockRequest)}; ledger rows carry idempotencyKey#lineIndex.
+     * Only units nobody has reserved can be sold.
+     */
+    @Transactional
+    public BatchStockResponse reduceStockBatch(BatchStockRequest request, String idempotencyKey) {
+        List<StockLineRequest> items = request.getItems() != null ? request.getItems() : List.of();
+        if (items.isEmpty()) {
+            return new BatchStockResponse(false, "No items to reduce", List.of());
+        }
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        for (StockLineRequest item : items) {
+            if (item.getProductId() != null && item.getQuantity() != null && item.getQuantity() > 0) {
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        List<StockLineResult> holds = stockLevelCache.holdUntilCompletion(quantities);
+        if (!holds.stream().allMatch(StockLineResult::isSuccess)) {
+            return new BatchStockResponse(false, "Stock not reduced, batch rejected", holds);
+        }
+        return reduceReservedStock(request, idempotencyKey);
+    }
+
+    /**
+     * Batch reduction of units the caller already holds in {@link StockLevelCache}, as a
+     * reservation being committed does, so they are not checked against its own hold again.
+     */
+    @Transactional
+    public BatchStockResponse reduceReservedStock(BatchStockRequest request, String idempotencyKey) {
+        List<StockLineRequest> items = request.getItems() != null ? request.getItems() : List.of();
+        if (items.isEmpty()) {
+            return new BatchStockResponse(false, "No items to reduce", List.of());
+        }
+        String performedBy = request.getPerformedBy() != null ? request.getPerformedBy() : "system";
+
+        // Striped products are debited through their cells, so their rows are read but not locked
+        Set<Long> productIds = new TreeSet<>();
+        Map<Long, Integer> stripedQuantities = new TreeMap<>();
+        for (StockLineRequest item : items) {
+            if (item.getProductId() != null) {
+                productIds.add(item.getProductId());
+            }
+        }
+        Map<Long, Inventory> inventories = new HashMap<>();
+        List<Long> rowLocked = new ArrayList<>();
+        for (Long productId : productIds) {
+            if (stripedStockService.isStriped(productId)) {
+                inventoryRepository.findByProductId(productId).ifPresent(i -> inventories.put(productId, i));
+            } else {
+                rowLocked.add(productId);
+            }
+        }
+        for (Inventory inventory : inventoryRepository.lockByProductIdsInOrder(rowLocked)) {
+            inventories.put(inventory.getProductId(), inventory);
+        }
+        for (StockLineRequest item : items) {
+            Inventory inventory = item.getProductId() != null ? inventories.get(item.getProductId()) : null;
+            if (inventory != null && inventory.getStockCells() > 0 && item.getQuantity() != null && item.getQuantity() > 0) {
+                stripedQuantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        Map<Long, StripedStockService.Adjustment> stripedAdjustments = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : stripedQuantities.entrySet()) {
+            Inventory inventory = inventories.get(entry.getKey());
+            stripedAdjustments.put(entry.getKey(),
+                    stripedStockService.adjust(entry.getKey(), -entry.getValue(), inventory.getMaxCapacity()));
+        }
+
+        // Lines are applied in order against the locked rows, so repeated products see each other's effect
+        List<StockLineResult> results = new ArrayList<>();
+        Map<Long, Integer> stockAfter = new HashMap<>();
+        boolean allApplicable = true;
+        for (StockLineRequest item : items) {
+            Inventory inventory = item.getProductId() != null ? inventories.get(item.getProductId()) : null;
+            StripedStockService.Adjustment striped = inventory != null ? stripedAdjustments.get(item.getProductId()) : null;
+            StockLineResult result = new StockLineResult(item.getProductId(), item.getQuantity(), false, null, null, null);
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                result.setMessage("Quantity must be positive");
+            } else if (inventory == null) {
+                result.setMessage("Inventory not found for this product");
+            } else if (striped != null && striped.status() != StripedStockService.Status.APPLIED) {
+                result.setPreviousStock(striped.previousTotal());
+                result.setMessage(striped.status() == StripedStockService.Status.INSUFFICIENT
+                        ? "Insufficient stock. Current stock: " + striped.previousTotal()
+                        : "Stock layout changed, please retry");
+            } else {
+                int currentStock = striped != null ? striped.previousTotal() : inventory.getCurrentStock();
+                int previousStock = stockAfter.getOrDefault(item.getProductId(), currentStock);
+                int newStock = previousStock - item.getQuantity();
+                result.setPreviousStock(previousStock);
+                if (newStock < 0) {
+                    result.setMessage("Insufficient stock. Current stock: " + previousStock);
+                } else {
+                    result.setSuccess(true);
+                    result.setNewStock(newStock);
+                    stockAfter.put(item.getProductId(), newStock);
+                }
+            }
+            allApplicable &= result.isSuccess();
+            results.add(result);
+        }
+
+        if (!allApplicable) {
+            for (StockLineResult result : results) {
+                if (result.isSuccess()) {
+                    result.setSuccess(false);
+                    result.setNewStock(null);
+                    result.setMessage("Not applied, another line in the batch failed");
+                }
+            }
+            if (!stripedAdjustments.isEmpty()) {
+                // Undo any cell debits already made; rows were not written yet
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            }
+            return new BatchStockResponse(false, "Stock not reduced, batch rejected", results);
+        }
+
+        List<Inventory> rowUpdates = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : stockAfter.entrySet()) {
+            Inventory inventory = inventories.get(entry.getKey());
+            if (stripedAdjustments.containsKey(entry.getKey())) {
+                Inventory snapshot = LowStockIndex.copyOf(inventory);
+                snapshot.setCurrentStock(entry.getValue());
+                inventories.put(entry.getKey(), snapshot);
+                lowStockIndex.updateAfterCommit(snapshot);
+            } else {
+                inventory.setCurrentStock(entry.getValue());
+                rowUpdates.add(inventory);
+            }
+        }
+        // Flushed here so the rows carry the version they commit with
+        for (Inventory inventory : inventoryRepository.saveAllAndFlush(rowUpdates)) {
+            lowStockIndex.updateAfterCommit(inventory);
+        }
+        Map<Long, Integer> stockBefore = new HashMap<>();
+        for (StockLineResult result : results) {
+            stockBefore.putIfAbsent(result.getProductId(), result.getPreviousStock());
+        }
+        for (Map.Entry<Long, Integer> entry : stockBefore.entrySet()) {
+            stockLevelCache.applyAfterCommit(entry.getKey(), stockAfter.get(entry.getKey()) - entry.getValue());
+            recordInventoryEvents(inventories.get(entry.getKey()), entry.getValue());
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            StockLineResult result = results.get(i);
+            StockTransaction transaction = new StockTransaction();
+            transaction.setProductId(result.getProductId());
+            transaction.setTransactionType("SALE");
+            transaction.setQuantity(-result.getQuantity());
+            transaction.setPreviousStock(result.getPreviousStock());
+            transaction.setNewStock(result.getNewStock());
+            transaction.setPerformedBy(performedBy);
+            transaction.setNotes("Stock reduced for sale");
+            transaction.setIdempotencyKey(idempotencyKey != null ? batchLineKey(idempotencyKey, i) : null);
+            stockTransactionService.recordTransaction(transaction);
+            result.setMessage(stockUpdatedMessage(result.getNewStock()));
+        }
+
+        return new BatchStockResponse(true, "Stock reduced for " + results.size() + " lines", results);
+    }
+
+    public static String batchLineKey(String idempotencyKey, int lineIndex) {
+        return idempotencyKey + "#" + lineIndex;
+    }
+
+    // Outbox rows commit with the stock change; InventoryOutboxRelay publishes them to Kafka
+    private void recordInventoryEvents(Inventory inventory, int previousStock) {
+        List<InventoryOutboxEvent> events = new ArrayList<>(2);
+        events.add(new InventoryOutboxEvent(null, InventoryEvent.EventType.STOCK_UPDATED.name(),
+                inventory.getProductId(), inventory.getCurrentStock(), inventory.getReorderLevel(), null, null, null, null));
+        if (previousStock >= inventory.getReorderLevel() && inventory.getCurrentStock() < inventory.getReorderLevel()) {
+            events.add(new InventoryOutboxEvent(null, InventoryEvent.EventType.LOW_STOCK_ALERT.name(),
+                    inventory.getProductId(), inventory.getCurrentStock(), inventory.getReorderLevel(), null, null, null, null));
+        }
+        inventoryOutboxRepository.saveAll(events);
+    }
+
     public Inventory getInventoryByProductId(Long productId) {
-        return inventoryRepository.findByProductId(productId).orElse(null);
+        Inventory inventory = inventoryRepository.findByProductId(productId).orElse(null);
+        if (inventory == null || inventory.getStockCells() == 0) {
+            return inventory;
+        }
+        // Striped rows only carry the last folded total; the live figure is the sum of the cells
+        Inventory live = LowStockIndex.copyOf(inventory);
+        live.setCurrentStock(stripedStockService.total(productId));
+        return live;
+    }
+
+    public String enableStripedStock(Long productId, int cells) {
+        return stripedStockService.enable(productId, cells);
+    }
+
+    public String disableStripedStock(Long productId) {
+        return stripedStockService.disable(productId);
     }
 
     public List<Inventory> getAllInventory(int pageNo, int pageSize) {
@@ -112,17 +524,29 @@ public class InventoryService {
         return inventoryRepository.findAll(paging).getContent();
     }
 
+    public KeysetPage<Inventory> getInventoryAfter(String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_KEYSET_PAGE_SIZE);
+        long afterId = cursor != null ? PageCursors.decodeId(cursor) : 0L;
+        List<Inventory> items = inventoryRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, pageSize));
+        String nextCursor = items.size() < pageSize ? null
+                : PageCursors.encodeId(items.get(items.size() - 1).getId());
+        return new KeysetPage<>(items, nextCursor);
+    }
+
     public List<Inventory> getLowStockItems() {
-        return inventoryRepository.findLowStockItems();
+        return lowStockIndex.getAll();
+    }
+
+    public List<Inventory> getLowStockItemsByShortfall(int pageNo, int pageSize) {
+        return lowStockIndex.getPageByShortfall(pageNo, pageSize);
     }
 
     public String updateReorderLevel(Long productId, int newReorderLevel) {
-        Inventory inventory = inventoryRepository.findByProductId(productId).orElse(null);
+        Inventory inventory = updateWithOptimisticRetry(productId, i -> i.setReorderLevel(newReorderLevel));
         if (inventory == null) {
             return "Inventory not found";
         }
-        inventory.setReorderLevel(newReorderLevel);
-        inventoryRepository.saveAndFlush(inventory);
+        lowStockIndex.update(inventory);
         return "Reorder level updated to: " + newReorderLevel;
     }
 
@@ -139,18 +563,40 @@ public class InventoryService {
         inventory.setMaxCapacity(100); // Default value
         inventory.setLocation("Warehouse A"); // Default value
         inventory.setAverageDailyConsumption(0.0);
-        inventoryRepository.save(inventory);
+        lowStockIndex.update(inventoryRepository.save(inventory));
+        stockLevelCache.put(productId, inventory.getCurrentStock());
 
         return "Inventory created successfully";
     }
 
     public String updateAverageDailyConsumption(Long productId, Double consumption) {
-        Inventory inventory = inventoryRepository.findByProductId(productId).orElse(null);
+        long now = System.currentTimeMillis();
+        Inventory inventory = updateWithOptimisticRetry(productId, i -> {
+            i.setAverageDailyConsumption(consumption);
+            i.setConsumptionAsOf(now);
+        });
         if (inventory == null) {
             return "Inventory not found";
         }
-        inventory.setAverageDailyConsumption(consumption);
-        inventoryRepository.saveAndFlush(inventory);
+        consumptionRateEngine.discardPending(productId);
         return "Consumption rate updated";
     }
+
+    // Re-reads and re-applies the change when a concurrent stock update bumped the version under us
+    private Inventory updateWithOptimisticRetry(Long productId, Consumer<Inventory> change) {
+        for (int attempt = 1; ; attempt++) {
+            Inventory inventory = inventoryRepository.findByProductId(productId).orElse(null);
+            if (inventory == null) {
+                return null;
+            }
+            change.accept(inventory);
+            try {
+                return inventoryRepository.saveAndFlush(inventory);
+            } catch (ObjectOptimisticLockingFailureException e) {
+                if (attempt >= MAX_OPTIMISTIC_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
 }
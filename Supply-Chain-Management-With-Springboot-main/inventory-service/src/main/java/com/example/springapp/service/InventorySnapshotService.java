@@ -0,0 +1,345 @@
+package com.example.springapp.service;
+
+import com.example.springapp.dto.DriftReport;
+import com.example.springapp.dto.StockDrift;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds stock levels from the ledger. A product's stock is its snapshot plus every
+ * stock_transactions quantity after the snapshot watermark; products without a snapshot
+ * start from the previous_stock of their first ledger row. Replay is split by product id
+ * across the replay pool, and {@link #takeSnapshot()} periodically moves the watermark
+ * forward so a replay only ever reads the ledger tail. ADJUSTMENT rows record a drift repair
+ * bringing current_stock to the ledger value, not a movement, so replay leaves them out.
+ */
+@Service
+@Slf4j
+public class InventorySnapshotService {
+
+    private static final String MAX_TRANSACTION_SQL = "SELECT COALESCE(MAX(id), 0) FROM stock_transactions";
+
+    private static final String WATERMARK_SQL = "SELECT COALESCE(MIN(through_transaction_id), 0) FROM inventory_snapshots";
+
+    private static final String SNAPSHOT_PARTITION_SQL = "SELECT product_id, stock FROM inventory_snapshots "
+            + "WHERE MOD(product_id, ?) = ?";
+
+    private static final String TAIL_PARTITION_SQL = "SELECT product_id, SUM(quantity), MIN(id) FROM stock_transactions "
+            + "WHERE id > ? AND id <= ? AND MOD(product_id, ?) = ? AND transaction_type <> 'ADJUSTMENT' "
+            + "GROUP BY product_id";
+
+    private static final String FIRST_ROWS_SQL = "SELECT product_id, previous_stock FROM stock_transactions WHERE id IN (:ids)";
+
+    private static final String SNAPSHOT_PRODUCT_SQL = "SELECT stock FROM inventory_snapshots WHERE product_id = ?";
+
+    private static final String TAIL_PRODUCT_SQL = "SELECT COALESCE(SUM(quantity), 0), MIN(id) FROM stock_transactions "
+            + "WHERE product_id = ? AND id > ? AND id <= ? AND transaction_type <> 'ADJUSTMENT'";
+
+    private static final String PREVIOUS_STOCK_SQL = "SELECT previous_stock FROM stock_transactions WHERE id = ?";
+
+    private static final String CURRENT_STOCK_SQL = "SELECT product_id, current_stock, stock_cells FROM inventory";
+
+    private static final String CURRENT_PRODUCT_SQL = "SELECT current_stock FROM inventory WHERE product_id = ? AND stock_cells = 0";
+
+    private static final String CELL_TOTALS_SQL = "SELECT product_id, SUM(units) FROM inventory_stock_cells GROUP BY product_id";
+
+    private static final String DELETE_SNAPSHOT_SQL = "DELETE FROM inventory_snapshots";
+
+    private static final String INSERT_SNAPSHOT_SQL = "INSERT INTO inventory_snapshots "
+            + "(product_id, stock, through_transaction_id, taken_at) VALUES (?, ?, ?, ?)";
+
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    private static final long LEDGER_FLUSH_TIMEOUT_SECONDS = 30;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StockLedgerWriter stockLedgerWriter;
+    private final InventoryService inventoryService;
+    private final StockLevelCache stockLevelCache;
+    private final ExecutorService replayExecutor;
+    private final int partitions;
+    private final long commitMarginMs;
+    private final boolean ledgerDurable;
+
+    public InventorySnapshotService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            StockLedgerWriter stockLedgerWriter, InventoryService inventoryService, StockLevelCache stockLevelCache,
+            @Value("${inventory.snapshot.replay-threads:4}") int replayThreads,
+            @Value("${inventory.snapshot.commit-margin-ms:5000}") long commitMarginMs,
+            @Value("${inventory.ledger.durable:false}") boolean ledgerDurable) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stockLedgerWriter = stockLedgerWriter;
+        this.inventoryService = inventoryService;
+        this.stockLevelCache = stockLevelCache;
+        this.replayExecutor = Executors.newFixedThreadPool(replayThreads);
+        this.partitions = replayThreads;
+        this.commitMarginMs = commitMarginMs;
+        this.ledgerDurable = ledgerDurable;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        replayExecutor.shutdownNow();
+    }
+
+    /**
+     * Replays the committed ledger and replaces the snapshot with the result. Returns the new
+     * watermark.
+     */
+    @Scheduled(fixedDelayString = "${inventory.snapshot.interval-ms:3600000}",
+            initialDelayString = "${inventory.snapshot.interval-ms:3600000}")
+    public synchronized long takeSnapshot() {
+        long start = System.currentTimeMillis();
+        long watermark = committedWatermark();
+        Map<Long, Integer> stock = replay(watermark);
+
+        Timestamp takenAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<Long, Integer>> rows = new ArrayList<>(stock.entrySet());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(DELETE_SNAPSHOT_SQL);
+            jdbcTemplate.batchUpdate(INSERT_SNAPSHOT_SQL, rows, 500, (ps, row) -> {
+                ps.setLong(1, row.getKey());
+                ps.setInt(2, row.getValue());
+                ps.setLong(3, watermark);
+                ps.setTimestamp(4, takenAt);
+            });
+        });
+        log.info("Inventory snapshot of {} products through transaction {} took {} ms",
+                rows.size(), watermark, System.currentTimeMillis() - start);
+        return watermark;
+    }
+
+    /**
+     * Compares the replayed ledger with inventory.current_stock (the cell total for striped
+     * products). A mismatch is only reported if a second, per-product check shows the same
+     * difference, so stock moving while the report runs is not mistaken for drift. With repair,
+     * confirmed drift on unstriped products is set to the ledger value through an ADJUSTMENT,
+     * guarded by the stock that was observed so a concurrent update wins. current_stock is the
+     * source of truth, so repair is refused unless the ledger is complete: durable, with nothing
+     * left in the write-behind queue. The report is still returned, with the reason.
+     */
+    public synchronized DriftReport checkDrift(boolean repair) {
+        long start = System.currentTimeMillis();
+        String repairRefused = repair ? ledgerIncompleteReason() : null;
+        if (repairRefused != null) {
+            log.warn("Drift repair refused: {}", repairRefused);
+            repair = false;
+        }
+
+        // Read stock before the ledger so every change it reflects is already in the replay
+        Map<Long, Integer> current = new HashMap<>();
+        Set<Long> striped = new HashSet<>();
+        jdbcTemplate.query(CURRENT_STOCK_SQL, rs -> {
+            current.put(rs.getLong(1), rs.getInt(2));
+            if (rs.getInt(3) > 0) {
+                striped.add(rs.getLong(1));
+            }
+        });
+        jdbcTemplate.query(CELL_TOTALS_SQL, rs -> {
+            if (striped.contains(rs.getLong(1))) {
+                current.put(rs.getLong(1), rs.getInt(2));
+            }
+        });
+
+        long watermark = committedWatermark();
+        Map<Long, Integer> ledger = replay(watermark);
+
+        List<StockDrift> drift = new ArrayList<>();
+        Map<Long, Integer> differences = new HashMap<>();
+        int withoutLedger = 0;
+        for (Map.Entry<Long, Integer> entry : current.entrySet()) {
+            Long productId = entry.getKey();
+            Integer ledgerStock = ledger.get(productId);
+            int currentStock = entry.getValue();
+            if (ledgerStock == null) {
+                withoutLedger++;
+                continue;
+            }
+            if (ledgerStock != currentStock) {
+                // Striped stock moves without a lock on the inventory row, so it is reported unconfirmed
+                if (striped.contains(productId)) {
+                    drift.add(new StockDrift(productId, ledgerStock, currentStock, false));
+                    continue;
+                }
+                differences.put(productId, ledgerStock - currentStock);
+            }
+        }
+        drift.addAll(confirm(differences, repair));
+
+        long duration = System.currentTimeMillis() - start;
+        if (!drift.isEmpty()) {
+            log.warn("Stock drift on {} of {} products through transaction {}", drift.size(), current.size(), watermark);
+        }
+        return new DriftReport(watermark, current.size(), withoutLedger, duration, drift, repairRefused);
+    }
+
+    /**
+     * Why the ledger cannot be trusted over current_stock, or null if it can. Write-behind rows
+     * are lost on a crash and may sit in another instance's queue or retry backoff past the
+     * commit margin, so only a durable ledger, which writes each row in its stock change's
+     * transaction, is complete. Every instance must run durable; this one can only check itself.
+     */
+    private String ledgerIncompleteReason() {
+        if (!ledgerDurable) {
+            return "inventory.ledger.durable is false, so the ledger may be missing committed stock changes";
+        }
+        flushLedger();
+        int queued = stockLedgerWriter.getQueueDepth();
+        if (queued > 0) {
+            return queued + " ledger rows are still waiting to be written";
+        }
+        return null;
+    }
+
+    /** Ledger stock of every product with a snapshot or a ledger row, as of transaction watermark. */
+    public Map<Long, Integer> replay(long watermark) {
+        long snapshotWatermark = jdbcTemplate.queryForObject(WATERMARK_SQL, Long.class);
+        List<Future<Map<Long, Integer>>> parts = new ArrayList<>(partitions);
+        for (int partition = 0; partition < partitions; partition++) {
+            int current = partition;
+            parts.add(replayExecutor.submit(() -> replayPartition(current, snapshotWatermark, watermark)));
+        }
+
+        Map<Long, Integer> stock = new HashMap<>();
+        for (Future<Map<Long, Integer>> part : parts) {
+            try {
+                stock.putAll(part.get());
+            } catch (Exception e) {
+                throw new IllegalStateException("Ledger replay failed: " + e.getMessage(), e);
+            }
+        }
+        return stock;
+    }
+
+    private Map<Long, Integer> replayPartition(int partition, long snapshotWatermark, long watermark) {
+        Map<Long, Integer> stock = new HashMap<>();
+        jdbcTemplate.query(SNAPSHOT_PARTITION_SQL, rs -> {
+            stock.put(rs.getLong(1), rs.getInt(2));
+        }, partitions, partition);
+
+        Map<Long, Long> firstRows = new HashMap<>();
+        Map<Long, Long> sums = new HashMap<>();
+        jdbcTemplate.query(TAIL_PARTITION_SQL, rs -> {
+            long productId = rs.getLong(1);
+            sums.put(productId, rs.getLong(2));
+            if (!stock.containsKey(productId)) {
+                firstRows.put(rs.getLong(3), productId);
+            }
+        }, snapshotWatermark, watermark, partitions, partition);
+
+        // Products first seen after the snapshot start from the stock before their first movement
+        List<Long> ids = new ArrayList<>(firstRows.keySet());
+        for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+            MapSqlParameterSource params = new MapSqlParameterSource("ids",
+                    ids.subList(from, Math.min(from + ID_CHUNK_SIZE, ids.size())));
+            namedJdbcTemplate.query(FIRST_ROWS_SQL, params, rs -> {
+                stock.put(rs.getLong(1), rs.getInt(2));
+            });
+        }
+
+        sums.forEach((productId, sum) -> stock.merge(productId, (int) (long) sum, Integer::sum));
+        return stock;
+    }
+
+    // Second look at the products that differed: their stock now, then the ledger committed after that read
+    private List<StockDrift> confirm(Map<Long, Integer> differences, boolean repair) {
+        if (differences.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Integer> observed = new HashMap<>();
+        for (Long productId : differences.keySet()) {
+            List<Integer> stock = jdbcTemplate.queryForList(CURRENT_PRODUCT_SQL, Integer.class, productId);
+            if (!stock.isEmpty()) {
+                observed.put(productId, stock.get(0));
+            }
+        }
+        long watermark = committedWatermark();
+
+        List<StockDrift> confirmed = new ArrayList<>();
+        observed.forEach((productId, currentStock) -> {
+            Integer ledgerStock = replayProduct(productId, watermark);
+            if (ledgerStock == null || ledgerStock - currentStock != differences.get(productId)) {
+                return;
+            }
+            boolean repaired = repair && inventoryService.adjustStockTo(productId, currentStock, ledgerStock,
+                    "system", "Drift repair to ledger stock");
+            if (repaired) {
+                // The cache only moves by deltas, so drift in the row may be drift in the cache too
+                stockLevelCache.put(productId, ledgerStock);
+                log.warn("Repaired stock of product {} from {} to ledger value {}", productId, currentStock, ledgerStock);
+            }
+            confirmed.add(new StockDrift(productId, ledgerStock, currentStock, repaired));
+        });
+        return confirmed;
+    }
+
+    private Integer replayProduct(Long productId, long watermark) {
+        long snapshotWatermark = jdbcTemplate.queryForObject(WATERMARK_SQL, Long.class);
+        List<Integer> snapshot = jdbcTemplate.queryForList(SNAPSHOT_PRODUCT_SQL, Integer.class, productId);
+        return jdbcTemplate.query(TAIL_PRODUCT_SQL, rs -> {
+            rs.next();
+            long sum = rs.getLong(1);
+            long firstId = rs.getLong(2);
+            if (!snapshot.isEmpty()) {
+                return snapshot.get(0) + (int) sum;
+            }
+            if (rs.wasNull()) {
+                return null;
+            }
+            return jdbcTemplate.queryForObject(PREVIOUS_STOCK_SQL, Integer.class, firstId) + (int) sum;
+        }, productId, snapshotWatermark, watermark);
+    }
+
+    /**
+     * Ledger id through which every row has committed. Ids are assigned at insert but become
+     * visible at commit, so MAX(id) can be ahead of a lower id whose batch is still committing
+     * here or on another instance. The max is read, then only used once commit-margin has
+     * passed, by when any insert holding a lower id has committed or rolled back.
+     */
+    private long committedWatermark() {
+        flushLedger();
+        long watermark = jdbcTemplate.queryForObject(MAX_TRANSACTION_SQL, Long.class);
+        try {
+            Thread.sleep(commitMarginMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for ledger commits", e);
+        }
+        return watermark;
+    }
+
+    private void flushLedger() {
+        try {
+            stockLedgerWriter.flushPending().get(LEDGER_FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for the stock ledger", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Stock ledger did not flush: " + e.getMessage(), e);
+        }
+    }
+}
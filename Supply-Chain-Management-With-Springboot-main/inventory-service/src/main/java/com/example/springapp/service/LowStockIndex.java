@@ -0,0 +1,172 @@
+package com.example.springapp.service;
+
+import com.example.springapp.models.Inventory;
+import com.example.springapp.repositories.InventoryRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory set of inventory rows whose stock is below their reorder level.
+ * Every stock or reorder-level mutation feeds the row through {@link #update(Inventory)},
+ * so low-stock reads never go to the database. Entries are also kept ordered by
+ * shortfall (reorder level minus current stock), largest first. Rows carry the inventory
+ * version, and a row older than the last one applied for its product is ignored, so callers
+ * racing to publish do not leave a stale level behind. {@link #resync()} periodically re-reads
+ * the rows to pick up changes made through other instances and striped-cell folds.
+ */
+@Component
+@Slf4j
+public class LowStockIndex {
+
+    private static final Comparator<Inventory> BY_SHORTFALL = Comparator
+            .comparingInt((Inventory i) -> i.getReorderLevel() - i.getCurrentStock()).reversed()
+            .thenComparing(Inventory::getProductId);
+
+    private final InventoryRepository inventoryRepository;
+    private final ConcurrentHashMap<Long, Inventory> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Inventory> byShortfall = new ConcurrentSkipListSet<>(BY_SHORTFALL);
+    // Version of the last row applied per product, low or not
+    private final ConcurrentHashMap<Long, Long> versions = new ConcurrentHashMap<>();
+
+    public LowStockIndex(InventoryRepository inventoryRepository) {
+        this.inventoryRepository = inventoryRepository;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        entries.clear();
+        byShortfall.clear();
+        versions.clear();
+        List<Inventory> lowStockItems = inventoryRepository.findLowStockItems();
+        for (Inventory inventory : lowStockItems) {
+            update(inventory);
+        }
+        log.info("Low stock index rebuilt with {} items", lowStockItems.size());
+    }
+
+    /**
+     * Feeds the rows that are low in the database, and those the index holds that no longer
+     * are, back through {@link #update(Inventory)}. The version check keeps a row read here from
+     * undoing a newer one published meanwhile, so the resync needs no lock against writers.
+     */
+    @Scheduled(fixedDelayString = "${inventory.low-stock.resync-interval-ms:30000}",
+            initialDelayString = "${inventory.low-stock.resync-interval-ms:30000}")
+    public void resync() {
+        Set<Long> indexed = new HashSet<>(entries.keySet());
+        int before = entries.size();
+        for (Inventory inventory : inventoryRepository.findLowStockItems()) {
+            update(inventory);
+            indexed.remove(inventory.getProductId());
+        }
+        if (!indexed.isEmpty()) {
+            for (Inventory inventory : inventoryRepository.findByProductIdIn(indexed)) {
+                update(inventory);
+                indexed.remove(inventory.getProductId());
+            }
+            // Whatever is left was deleted
+            indexed.forEach(this::remove);
+        }
+        if (entries.size() != before) {
+            log.info("Low stock index resynced from {} to {} items", before, entries.size());
+        }
+    }
+
+    public void update(Inventory inventory) {
+        Inventory snapshot = isLow(inventory) ? copyOf(inventory) : null;
+        Long version = inventory.getVersion();
+        entries.compute(inventory.getProductId(), (productId, previous) -> {
+            // Every update of a product runs inside this compute, so the version check cannot race
+            Long applied = versions.get(productId);
+            if (version != null && applied != null && version < applied) {
+                return previous;
+            }
+            if (version != null) {
+                versions.put(productId, version);
+            }
+            if (previous != null) {
+                byShortfall.remove(previous);
+            }
+            if (snapshot != null) {
+                byShortfall.add(snapshot);
+            }
+            return snapshot;
+        });
+    }
+
+    /**
+     * Applies the row once the surrounding transaction commits (immediately if there is none),
+     * so a rolled-back change never shows up. The row is copied now, as the caller may change it.
+     */
+    public void updateAfterCommit(Inventory inventory) {
+        Inventory committed = copyOf(inventory);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update(committed);
+                }
+            });
+        } else {
+            update(committed);
+        }
+    }
+
+    public void remove(Long productId) {
+        entries.computeIfPresent(productId, (id, previous) -> {
+            byShortfall.remove(previous);
+            return null;
+        });
+        versions.remove(productId);
+    }
+
+    public List<Inventory> getAll() {
+        List<Inventory> result = new ArrayList<>(entries.size());
+        for (Inventory inventory : entries.values()) {
+            result.add(copyOf(inventory));
+        }
+        return result;
+    }
+
+    public List<Inventory> getPageByShortfall(int pageNo, int pageSize) {
+        List<Inventory> page = new ArrayList<>(pageSize);
+        Iterator<Inventory> it = byShortfall.iterator();
+        long toSkip = (long) pageNo * pageSize;
+        while (it.hasNext() && page.size() < pageSize) {
+            Inventory inventory = it.next();
+            if (toSkip > 0) {
+                toSkip--;
+            } else {
+                page.add(copyOf(inventory));
+            }
+        }
+        return page;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static boolean isLow(Inventory inventory) {
+        return inventory.getCurrentStock() < inventory.getReorderLevel();
+    }
+
+    static Inventory copyOf(Inventory inventory) {
+        return new Inventory(inventory.getId(), inventory.getProductId(), inventory.getProductName(),
+                inventory.getCurrentStock(), inventory.getReorderLevel(), inventory.getMaxCapacity(),
+                inventory.getLastRestocked(), inventory.getLocation(), inventory.getAverageDailyConsumption(),
+                inventory.getConsumptionAsOf(), inventory.getVersion(), inventory.getStockCells());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.springapp.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque continuation tokens for keyset pagination. A token is the base64url encoding
+ * of the sort key of the last row on the previous page.
+ */
+final class PageCursors {
+
+    private PageCursors() {
+    }
+
+    static String encodeId(long id) {
+        return encode(Long.toString(id));
+    }
+
+    static long decodeId(String cursor) {
+        try {
+            return Long.parseLong(decode(cursor));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    static String encodeDateAndId(LocalDateTime date, long id) {
+        return encode(date + "|" + id);
+    }
+
+    static DateAndId decodeDateAndId(String cursor) {
+        try {
+            String[] parts = decode(cursor).split("\\|", 2);
+            return new DateAndId(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static String encode(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+    record DateAndId(LocalDateTime date, long id) {
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.springapp.service;
+
+import com.example.springapp.client.ProductClient;
+import com.example.springapp.dto.ProductDTO;
+import com.example.springapp.dto.ProductPageDTO;
+import com.example.springapp.events.ProductEvent;
+import com.example.springapp.models.ProductReplica;
+import com.example.springapp.repositories.InventoryRepository;
+import com.example.springapp.repositories.ProductReplicaRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local copy of the product catalog (id, name, category, price), kept current from
+ * product-events and persisted in product_replica so it survives restarts. When the
+ * table is empty on startup it is seeded with a paged snapshot from product-service.
+ * Inside a transaction the in-memory copy only changes once it commits, so a rollback
+ * leaves memory and product_replica in agreement.
+ */
+@Service
+@Slf4j
+public class ProductCatalogReplica {
+
+    private static final int SNAPSHOT_PAGE_SIZE = 500;
+
+    private final ProductReplicaRepository productReplicaRepository;
+    private final InventoryRepository inventoryRepository;
+    private final ProductClient productClient;
+    private final LowStockIndex lowStockIndex;
+    private final ConcurrentHashMap<Long, ProductReplica> products = new ConcurrentHashMap<>();
+
+    public ProductCatalogReplica(ProductReplicaRepository productReplicaRepository,
+            InventoryRepository inventoryRepository, ProductClient productClient, LowStockIndex lowStockIndex) {
+        this.productReplicaRepository = productReplicaRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.productClient = productClient;
+        this.lowStockIndex = lowStockIndex;
+    }
+
+    @PostConstruct
+    public void load() {
+        for (ProductReplica product : productReplicaRepository.findAll()) {
+            products.put(product.getProductId(), product);
+        }
+        log.info("Product replica loaded with {} products", products.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrapIfEmpty() {
+        if (products.isEmpty()) {
+            Thread bootstrap = new Thread(this::loadSnapshot, "product-replica-bootstrap");
+            bootstrap.setDaemon(true);
+            bootstrap.start();
+        }
+    }
+
+    /**
+     * Pages through product-service and upserts every product. Events that arrive meanwhile
+     * are newer than the snapshot and win, see {@link #upsert}.
+     */
+    public int loadSnapshot() {
+        int loaded = 0;
+        try {
+            for (int pageNo = 0; ; pageNo++) {
+                ProductPageDTO page = productClient.getProducts(pageNo, SNAPSHOT_PAGE_SIZE);
+                if (page == null || page.getContent() == null) {
+                    break;
+                }
+                for (ProductDTO product : page.getContent()) {
+                    upsert(product.getId(), product.getName(), product.getCategory(), product.getPrice(), null);
+                    loaded++;
+                }
+                if (page.isLast() || page.getContent().isEmpty()) {
+                    break;
+                }
+            }
+            log.info("Product replica snapshot loaded {} products", loaded);
+        } catch (Exception e) {
+            log.error("Error loading product replica snapshot: {}", e.getMessage());
+        }
+        return loaded;
+    }
+
+    @Transactional
+    public void applyAll(List<ProductEvent> events) {
+        for (ProductEvent event : events) {
+            apply(event);
+        }
+    }
+
+    @Transactional
+    public void apply(ProductEvent event) {
+        switch (event.getEventType()) {
+            case CREATED:
+            case UPDATED:
+                upsert(event.getProductId(), event.getName(), event.getCategory(), event.getPrice(),
+                        event.getTimestamp());
+                break;
+            case DELETED:
+                productReplicaRepository.deleteById(event.getProductId());
+                change(event.getProductId(), null);
+                break;
+        }
+    }
+
+    public Optional<ProductReplica> find(Long productId) {
+        return Optional.ofNullable(current(productId));
+    }
+
+    public void remember(ProductDTO product) {
+        upsert(product.getId(), product.getName(), product.getCategory(), product.getPrice(), null);
+    }
+
+    private void upsert(Long productId, String name, String category, Double price, LocalDateTime timestamp) {
+        ProductReplica current = current(productId);
+        if (isStale(timestamp, current)) {
+            return;
+        }
+
+        ProductReplica replica = new ProductReplica(productId, name, category, price, timestamp);
+        productReplicaRepository.save(replica);
+        change(productId, replica);
+
+        if (current == null || !Objects.equals(current.getName(), name)) {
+            if (inventoryRepository.updateProductName(productId, name) > 0) {
+                inventoryRepository.findByProductId(productId).ifPresent(lowStockIndex::updateAfterCommit);
+            }
+        }
+    }
+
+    // Snapshot rows carry no timestamp and never overwrite an entry that came from an event
+    private static boolean isStale(LocalDateTime timestamp, ProductReplica current) {
+        return current != null && current.getUpdatedAt() != null
+                && (timestamp == null || timestamp.isBefore(current.getUpdatedAt()));
+    }
+
+    // The entry as this transaction sees it: its own uncommitted change, else the committed one
+    @SuppressWarnings("unchecked")
+    private ProductReplica current(Long productId) {
+        Map<Long, ProductReplica> pending = (Map<Long, ProductReplica>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null && pending.containsKey(productId)) {
+            return pending.get(productId);
+        }
+        return products.get(productId);
+    }
+
+    // A null replica is a delete. Without a transaction the change applies at once
+    private void change(Long productId, ProductReplica replica) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionChanges().put(productId, replica);
+        } else {
+            applyCommitted(productId, replica);
+        }
+    }
+
+    // Changes of the current transaction, bound to it as a resource and applied once it commits
+    @SuppressWarnings("unchecked")
+    private Map<Long, ProductReplica> transactionChanges() {
+        Map<Long, ProductReplica> changes = (Map<Long, ProductReplica>) TransactionSynchronizationManager.getResource(this);
+        if (changes != null) {
+            return changes;
+        }
+        Map<Long, ProductReplica> created = new LinkedHashMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                created.forEach(ProductCatalogReplica.this::applyCommitted);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ProductCatalogReplica.this);
+            }
+        });
+        return created;
+    }
+
+    // Another transaction may have committed a newer event for the product meanwhile
+    private void applyCommitted(Long productId, ProductReplica replica) {
+        if (replica == null) {
+            products.remove(productId);
+            return;
+        }
+        products.compute(productId, (id, current) -> isStale(replica.getUpdatedAt(), current) ? current : replica);
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.springapp.service;
+
+import com.example.springapp.dto.BatchStockRequest;
+import com.example.springapp.dto.BatchStockResponse;
+import com.example.springapp.dto.ReservationRequest;
+import com.example.springapp.dto.ReservationResponse;
+import com.example.springapp.dto.StockLineRequest;
+import com.example.springapp.dto.StockLineResult;
+import com.example.springapp.util.TimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reserve / commit / release on top of {@link StockLevelCache}. A reservation only holds units
+ * in memory; commit turns it into a SALE through the normal batch reduction, release or expiry
+ * just drops the hold. Expiry runs on a timing wheel so pending holds cost O(1) each.
+ * Whoever removes the reservation from the map (commit, release or the expiry task) owns it,
+ * which keeps those three paths from racing each other; a commit that fails puts it back.
+ */
+@Service
+@Slf4j
+public class ReservationService {
+
+    private static final long WHEEL_TICK_MS = 100;
+    private static final int WHEEL_SIZE = 512;
+
+    private final StockLevelCache stockLevelCache;
+    private final InventoryService inventoryService;
+    private final IdempotencyKeyStore idempotencyKeyStore;
+    private final IdempotencyClaims idempotencyClaims;
+    private final long defaultTtlSeconds;
+    private final long maxTtlSeconds;
+    private final ConcurrentHashMap<String, Reservation> reservations = new ConcurrentHashMap<>();
+    private final TimingWheel timingWheel = new TimingWheel("reservation-reaper", WHEEL_TICK_MS, WHEEL_SIZE);
+    private final Counter committed;
+    private final Counter released;
+    private final Counter expired;
+
+    public ReservationService(StockLevelCache stockLevelCache, InventoryService inventoryService,
+            IdempotencyKeyStore idempotencyKeyStore, IdempotencyClaims idempotencyClaims,
+            MeterRegistry meterRegistry,
+            @Value("${inventory.reservation.default-ttl-seconds:900}") long defaultTtlSeconds,
+            @Value("${inventory.reservation.max-ttl-seconds:86400}") long maxTtlSeconds) {
+        this.stockLevelCache = stockLevelCache;
+        this.inventoryService = inventoryService;
+        this.idempotencyKeyStore = idempotencyKeyStore;
+        this.idempotencyClaims = idempotencyClaims;
+        this.defaultTtlSeconds = defaultTtlSeconds;
+        this.maxTtlSeconds = maxTtlSeconds;
+
+        Gauge.builder("inventory.reservations.active", reservations, Map::size)
+                .description("Reservations currently holding stock")
+                .register(meterRegistry);
+        this.committed = outcomeCounter(meterRegistry, "committed");
+        this.released = outcomeCounter(meterRegistry, "released");
+        this.expired = outcomeCounter(meterRegistry, "expired");
+    }
+
+    public ReservationResponse reserve(ReservationRequest request) {
+        if (request.getReference() == null || request.getReference().isBlank()) {
+            throw new IllegalArgumentException("Reservation reference is required");
+        }
+        SortedMap<Long, Integer> quantities = sumByProduct(request.getItems());
+        long ttlSeconds = request.getTtlSeconds() != null ? request.getTtlSeconds() : defaultTtlSeconds;
+        if (ttlSeconds <= 0 || ttlSeconds > maxTtlSeconds) {
+            throw new IllegalArgumentException("ttlSeconds must be between 1 and " + maxTtlSeconds);
+        }
+
+        Reservation existing = reservations.get(request.getReference());
+        if (existing != null) {
+            return new ReservationResponse(true, "Reservation already held", existing.reference, existing.expiresAt, List.of());
+        }
+
+        List<StockLineResult> lines = stockLevelCache.tryReserve(quantities);
+        if (!lines.stream().allMatch(StockLineResult::isSuccess)) {
+            return new ReservationResponse(false, "Stock not reserved, reservation rejected", request.getReference(), null, lines);
+        }
+
+        String performedBy = request.getPerformedBy() != null ? request.getPerformedBy() : "system";
+        Reservation reservation = new Reservation(request.getReference(), performedBy, quantities,
+                LocalDateTime.now().plusSeconds(ttlSeconds));
+        existing = reservations.putIfAbsent(reservation.reference, reservation);
+        if (existing != null) {
+            // Lost a race with the same reference; keep theirs and give our units back
+            stockLevelCache.release(quantities);
+            return new ReservationResponse(true, "Reservation already held", existing.reference, existing.expiresAt, List.of());
+        }
+        reservation.timeout = timingWheel.schedule(TimeUnit.SECONDS.toMillis(ttlSeconds), () -> expire(reservation));
+        return new ReservationResponse(true, "Stock reserved for " + lines.size() + " products",
+                reservation.reference, reservation.expiresAt, lines);
+    }
+
+    /**
+     * Converts the hold into SALE transactions. If the reservation is gone (expired, or lost
+     * with a restart) the caller's lines are re-reserved and committed in one go instead.
+     */
+    public BatchStockResponse commit(String reference, BatchStockRequest fallback) {
+        return commit(reference, fallback, null);
+    }
+
+    /**
+     * Commit that is safe to retry: with an idempotency key a repeated call returns the first
+     * response instead of taking the fallback path and reducing stock a second time. The key is
+     * claimed in the reduction's transaction, so it still holds once the key store forgets it.
+     */
+    public BatchStockResponse commit(String reference, BatchStockRequest fallback, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return commitOnce(reference, fallback, null);
+        }
+        return idempotencyKeyStore.execute(idempotencyKey, commitFingerprint(reference),
+                () -> idempotencyClaims.find(idempotencyKey, commitFingerprint(reference))
+                        .map(ReservationService::recordedCommit)
+                        .orElse(null),
+                () -> commitOnce(reference, fallback, idempotencyKey),
+                BatchStockResponse::isSuccess);
+    }
+
+    private BatchStockResponse commitOnce(String reference, BatchStockRequest fallback, String idempotencyKey) {
+        Reservation reservation = reservations.remove(reference);
+        boolean held = reservation != null;
+        if (held) {
+            cancelTimeout(reservation);
+        } else {
+            List<StockLineRequest> items = fallback != null ? fallback.getItems() : null;
+            if (items == null || items.isEmpty()) {
+                return new BatchStockResponse(false, "Reservation not found: " + reference, List.of());
+            }
+            String performedBy = fallback.getPerformedBy() != null ? fallback.getPerformedBy() : "system";
+            reservation = new Reservation(reference, performedBy, sumByProduct(items), null);
+            List<StockLineResult> lines = stockLevelCache.tryReserve(reservation.quantities);
+            if (!lines.stream().allMatch(StockLineResult::isSuccess)) {
+                return new BatchStockResponse(false, "Reservation not found and stock no longer available", lines);
+            }
+        }
+
+        boolean success = false;
+        try {
+            BatchStockRequest request = new BatchStockRequest(reservation.performedBy, reservation.lines());
+            BatchStockResponse response = idempotencyKey == null
+                    ? inventoryService.reduceReservedStock(request, null)
+                    : idempotencyClaims.runOnce(idempotencyKey, commitFingerprint(reference),
+                            () -> inventoryService.reduceReservedStock(request, idempotencyKey),
+                            BatchStockResponse::isSuccess, BatchStockResponse::getMessage,
+                            ReservationService::recordedCommit);
+            success = response.isSuccess();
+            if (success) {
+                committed.increment();
+            }
+            return response;
+        } finally {
+            if (success || !held) {
+                // On-hand already moved when the reduction committed, so the hold can go now
+                stockLevelCache.release(reservation.quantities);
+            } else {
+                restore(reservation);
+            }
+        }
+    }
+
+    // A commit that failed leaves the reservation as it was, so the caller can retry or release it
+    private void restore(Reservation reservation) {
+        long remainingMs = Duration.between(LocalDateTime.now(), reservation.expiresAt).toMillis();
+        if (remainingMs <= 0 || reservations.putIfAbsent(reservation.reference, reservation) != null) {
+            stockLevelCache.release(reservation.quantities);
+            return;
+        }
+        reservation.timeout = timingWheel.schedule(remainingMs, () -> expire(reservation));
+    }
+
+    private static String commitFingerprint(String reference) {
+        return "COMMIT:" + reference;
+    }
+
+    private static BatchStockResponse recordedCommit(String message) {
+        return new BatchStockResponse(true, message, List.of());
+    }
+
+    public String release(String reference) {
+        Reservation reservation = reservations.remove(reference);
+        if (reservation == null) {
+            return "Reservation not found: " + reference;
+        }
+        cancelTimeout(reservation);
+        stockLevelCache.release(reservation.quantities);
+        released.increment();
+        return "Reservation " + reference + " released";
+    }
+
+    public int activeReservations() {
+        return reservations.size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        timingWheel.close();
+    }
+
+    private void expire(Reservation reservation) {
+        if (reservations.remove(reservation.reference, reservation)) {
+            stockLevelCache.release(reservation.quantities);
+            expired.increment();
+            log.info("Reservation {} expired", reservation.reference);
+        }
+    }
+
+    private void cancelTimeout(Reservation reservation) {
+        TimingWheel.Timeout timeout = reservation.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private SortedMap<Long, Integer> sumByProduct(List<StockLineRequest> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("No items to reserve");
+        }
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        for (StockLineRequest item : items) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Each item needs a productId and a positive quantity");
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("inventory.reservations.closed")
+                .description("Reservations closed, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static final class Reservation {
+        private final String reference;
+        private final String performedBy;
+        private final SortedMap<Long, Integer> quantities;
+        private final LocalDateTime expiresAt;
+        private volatile TimingWheel.Timeout timeout;
+
+        private Reservation(String reference, String performedBy, SortedMap<Long, Integer> quantities,
+                LocalDateTime expiresAt) {
+            this.reference = reference;
+            this.performedBy = performedBy;
+            this.quantities = quantities;
+            this.expiresAt = expiresAt;
+        }
+
+        private List<StockLineRequest> lines() {
+            return quantities.entrySet().stream()
+                    .map(entry -> new StockLineRequest(entry.getKey(), entry.getValue()))
+                    .toList();
+        }
+    }
+}
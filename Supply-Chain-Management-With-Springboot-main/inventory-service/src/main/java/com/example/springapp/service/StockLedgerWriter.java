@@ -0,0 +1,311 @@
+package com.example.springapp.service;
+
+import com.example.springapp.models.StockTransaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind writer for the stock ledger. Rows are queued and group-committed
+ * with JDBC batch inserts once the batch is full or the oldest row has waited
+ * max-delay-ms. A caller takes a queue slot with {@link #tryReserve} before its stock
+ * change commits and never waits on the writer: when no slot is free it writes the row
+ * itself with {@link #writeNow}, in its own transaction, which is the backpressure.
+ * Each flush also folds the batch into the daily rollup in the same transaction.
+ * The rows belong to stock changes that already committed, so a batch that fails to
+ * write is retried with backoff rather than dropped; later rows queue up behind it. Only a
+ * row the database rejects outright (a repeated idempotency key, an invalid value) is left
+ * out, and an invalid one is logged in full.
+ */
+@Service
+@Slf4j
+public class StockLedgerWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO stock_transactions "
+            + "(product_id, transaction_type, quantity, previous_stock, new_stock, transaction_date, performed_by, notes, "
+            + "idempotency_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StockRollupService stockRollupService;
+    private final BlockingQueue<PendingEntry> queue = new LinkedBlockingQueue<>();
+    private final Semaphore slots; // queued and in-flight rows are bounded by queue-capacity
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final long retryMaxDelayMs;
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizeSummary;
+    private final Counter failedFlushCounter;
+    private final Counter rejectedRowCounter;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public StockLedgerWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            StockRollupService stockRollupService, MeterRegistry meterRegistry,
+            @Value("${inventory.ledger.queue-capacity:10000}") int queueCapacity,
+            @Value("${inventory.ledger.batch-size:200}") int batchSize,
+            @Value("${inventory.ledger.max-delay-ms:20}") long maxDelayMs,
+            @Value("${inventory.ledger.retry-max-delay-ms:5000}") long retryMaxDelayMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stockRollupService = stockRollupService;
+        this.slots = new Semaphore(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.retryMaxDelayMs = retryMaxDelayMs;
+
+        Gauge.builder("inventory.ledger.queue.depth", queue, BlockingQueue::size)
+                .description("Stock transactions waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("inventory.ledger.flush")
+                .description("Time to group-commit one batch of stock transactions")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("inventory.ledger.batch.size")
+                .description("Stock transactions written per group commit")
+                .register(meterRegistry);
+        this.failedFlushCounter = Counter.builder("inventory.ledger.flush.failures")
+                .description("Group commits that failed and were retried")
+                .register(meterRegistry);
+        this.rejectedRowCounter = Counter.builder("inventory.ledger.rows.rejected")
+                .description("Ledger rows the database refused as invalid, logged instead of written")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::runLoop, "stock-ledger-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /** Takes a queue slot for one row, or returns false at once when the queue is full. */
+    public boolean tryReserve() {
+        return slots.tryAcquire();
+    }
+
+    /** Gives back a slot taken by {@link #tryReserve} whose row will not be appended. */
+    public void cancelReservation() {
+        slots.release();
+    }
+
+    /**
+     * Queues a ledger row into a slot taken by {@link #tryReserve}; never blocks. The returned
+     * future completes once the row is in the database.
+     */
+    public CompletableFuture<Void> append(StockTransaction transaction) {
+        if (transaction.getTransactionDate() == null) {
+            transaction.setTransactionDate(LocalDateTime.now());
+        }
+        PendingEntry entry = new PendingEntry(transaction, new CompletableFuture<>());
+        queue.offer(entry);
+        return entry.future;
+    }
+
+    /**
+     * Writes one row and its rollup increment in the caller's transaction (a new one if there
+     * is none), so it commits or rolls back with the stock change that made it.
+     */
+    public void writeNow(StockTransaction transaction) {
+        if (transaction.getTransactionDate() == null) {
+            transaction.setTransactionDate(LocalDateTime.now());
+        }
+        PendingEntry entry = new PendingEntry(transaction, null);
+        transactionTemplate.executeWithoutResult(status -> {
+            insertBatch(List.of(entry));
+            stockRollupService.applyIncrement(List.of(transaction));
+        });
+    }
+
+    /** Completes once every row queued before this call has been written. */
+    public CompletableFuture<Void> flushPending() {
+        PendingEntry marker = new PendingEntry(null, new CompletableFuture<>());
+        queue.offer(marker);
+        return marker.future;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void runLoop() {
+        List<PendingEntry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingEntry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingEntry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queue.drainTo(batch);
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // Ledger rows and their daily rollup increments commit together
+    private void flush(List<PendingEntry> batch) {
+        long start = System.nanoTime();
+        List<PendingEntry> rows = new ArrayList<>(batch.size());
+        for (PendingEntry entry : batch) {
+            // Entries without a row are flushPending() markers
+            if (entry.transaction != null) {
+                rows.add(entry);
+            }
+        }
+        int slotsTaken = rows.size();
+        try {
+            long retryDelayMs = 50;
+            boolean reported = false;
+            while (!rows.isEmpty()) {
+                try {
+                    write(rows);
+                } catch (Exception e) {
+                    failedFlushCounter.increment();
+                    retryDelayMs = Math.min(retryDelayMs * 2, retryMaxDelayMs);
+                    log.error("Error writing {} stock transactions, retrying in {} ms: {}",
+                            rows.size(), retryDelayMs, e.getMessage(), e);
+                    if (!running && !reported) {
+                        // Shutting down with the database unreachable: leave a trace of what is not written yet
+                        rows.forEach(entry -> log.error("Unwritten stock transaction: {}", describe(entry.transaction)));
+                        reported = true;
+                    }
+                    Thread.sleep(retryDelayMs);
+                }
+            }
+            for (PendingEntry entry : batch) {
+                entry.future.complete(null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            rows.forEach(entry -> log.error("Unwritten stock transaction: {}", describe(entry.transaction)));
+            for (PendingEntry entry : batch) {
+                entry.future.completeExceptionally(e);
+            }
+        } finally {
+            slots.release(slotsTaken);
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizeSummary.record(batch.size());
+        }
+    }
+
+    // Removes rows from the list as they commit, so a retry after a failure never writes one twice
+    private void write(List<PendingEntry> rows) {
+        try {
+            List<StockTransaction> transactions = rows.stream().map(PendingEntry::transaction).toList();
+            transactionTemplate.executeWithoutResult(status -> {
+                insertBatch(rows);
+                stockRollupService.applyIncrement(transactions);
+            });
+            rows.clear();
+        } catch (DataIntegrityViolationException e) {
+            insertEach(rows);
+        }
+    }
+
+    // One bad row fails the whole batch; write row by row and leave out only the rows refused.
+    // Any other error propagates with the unwritten rows still in the list
+    private void insertEach(List<PendingEntry> rows) {
+        Iterator<PendingEntry> it = rows.iterator();
+        while (it.hasNext()) {
+            PendingEntry entry = it.next();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    insertBatch(List.of(entry));
+                    stockRollupService.applyIncrement(List.of(entry.transaction));
+                });
+            } catch (DuplicateKeyException e) {
+                log.warn("Dropped ledger row for product {} with repeated idempotency key {}",
+                        entry.transaction.getProductId(), entry.transaction.getIdempotencyKey());
+            } catch (DataIntegrityViolationException e) {
+                rejectedRowCounter.increment();
+                log.error("Rejected stock transaction, not written: {}: {}", describe(entry.transaction), e.getMessage());
+            }
+            it.remove();
+        }
+    }
+
+    private static String describe(StockTransaction tx) {
+        return "product " + tx.getProductId() + " " + tx.getTransactionType() + " " + tx.getQuantity()
+                + " (" + tx.getPreviousStock() + " -> " + tx.getNewStock() + ") at " + tx.getTransactionDate()
+                + " by " + tx.getPerformedBy() + ", idempotency key " + tx.getIdempotencyKey();
+    }
+
+    private void insertBatch(List<PendingEntry> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, entry) -> {
+            StockTransaction tx = entry.transaction;
+            ps.setLong(1, tx.getProductId());
+            ps.setString(2, tx.getTransactionType());
+            ps.setInt(3, tx.getQuantity());
+            ps.setInt(4, tx.getPreviousStock());
+            ps.setInt(5, tx.getNewStock());
+            ps.setTimestamp(6, Timestamp.valueOf(tx.getTransactionDate()));
+            ps.setString(7, tx.getPerformedBy());
+            if (tx.getNotes() != null) {
+                ps.setString(8, tx.getNotes());
+            } else {
+                ps.setNull(8, Types.VARCHAR);
+            }
+            if (tx.getIdempotencyKey() != null) {
+                ps.setString(9, tx.getIdempotencyKey());
+            } else {
+                ps.setNull(9, Types.VARCHAR);
+            }
+        });
+    }
+
+    private record PendingEntry(StockTransaction transaction, CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.springapp.service;
+
+import com.example.springapp.dto.StockAvailability;
+import com.example.springapp.dto.StockLineResult;
+import com.example.springapp.repositories.InventoryRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * In-memory on-hand and reserved units per product, so available-to-promise never hits the
+ * database. On-hand is loaded at startup and moved by the deltas of this instance's committed
+ * stock changes; {@link #resync()} periodically re-reads it to pick up changes made through
+ * other instances. Reserved is owned by {@link ReservationService}, plus the short holds sales
+ * take through {@link #holdUntilCompletion} so they cannot sell reserved units.
+ */
+@Service
+@Slf4j
+public class StockLevelCache {
+
+    private final InventoryRepository inventoryRepository;
+    private final ConcurrentHashMap<Long, StockPosition> positions = new ConcurrentHashMap<>();
+
+    public StockLevelCache(InventoryRepository inventoryRepository) {
+        this.inventoryRepository = inventoryRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        for (Object[] row : inventoryRepository.findStockLevels()) {
+            positions.computeIfAbsent(((Number) row[0]).longValue(), id -> new StockPosition()).onHand =
+                    ((Number) row[1]).intValue();
+        }
+        log.info("Stock level cache warmed with {} products", positions.size());
+    }
+
+    /**
+     * Sets on-hand to the database figure. A product with a change of this instance still in
+     * flight, or one that completed while the figures were read, keeps its value until the next
+     * pass, since the figure read may or may not include that change.
+     */
+    @Scheduled(fixedDelayString = "${inventory.stock-cache.resync-interval-ms:30000}",
+            initialDelayString = "${inventory.stock-cache.resync-interval-ms:30000}")
+    public void resync() {
+        int corrected = resync(positions.keySet(), inventoryRepository::findStockLevels);
+        if (corrected > 0) {
+            log.info("Stock level cache resynced on-hand of {} products", corrected);
+        }
+    }
+
+    // Change counts taken before the read tell whether the figure read might be missing one of ours
+    private int resync(Collection<Long> productIds, Supplier<List<Object[]>> read) {
+        Map<Long, Long> changesBefore = new HashMap<>();
+        for (Long productId : productIds) {
+            StockPosition position = positions.get(productId);
+            if (position != null) {
+                changesBefore.put(productId, position.changes());
+            }
+        }
+
+        int corrected = 0;
+        for (Object[] row : read.get()) {
+            Long productId = ((Number) row[0]).longValue();
+            int onHand = ((Number) row[1]).intValue();
+            StockPosition position = positions.get(productId);
+            Long changes = changesBefore.get(productId);
+            if (position == null || changes == null) {
+                continue;
+            }
+            position.lock.lock();
+            try {
+                if (changes == position.changes && position.inFlight == 0 && position.onHand != onHand) {
+                    position.onHand = onHand;
+                    corrected++;
+                }
+            } finally {
+                position.lock.unlock();
+            }
+        }
+        return corrected;
+    }
+
+    public StockAvailability getAvailability(Long productId) {
+        StockPosition position = positions.get(productId);
+        if (position == null) {
+            return null;
+        }
+        position.lock.lock();
+        try {
+            return new StockAvailability(productId, position.onHand, position.reserved, position.available());
+        } finally {
+            position.lock.unlock();
+        }
+    }
+
+    public void put(Long productId, int onHand) {
+        StockPosition position = positions.computeIfAbsent(productId, id -> new StockPosition());
+        position.lock.lock();
+        try {
+            position.onHand = onHand;
+            position.changes++;
+        } finally {
+            position.lock.unlock();
+        }
+    }
+
+    /** Moves on-hand by delta once the surrounding transaction commits (immediately if there is none). */
+    public void applyAfterCommit(Long productId, int delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyDelta(productId, delta, 0);
+            return;
+        }
+        // Counted as in flight from the database write until the delta lands, so resync leaves it alone
+        StockPosition position = positions.get(productId);
+        if (position != null) {
+            position.lock.lock();
+            try {
+                position.inFlight++;
+            } finally {
+                position.lock.unlock();
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                applyDelta(productId, delta, settleHold(productId, delta));
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (position != null) {
+                    position.lock.lock();
+                    try {
+                        position.inFlight--;
+                    } finally {
+                        position.lock.unlock();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Holds every quantity or none. Before refusing, the products are re-read from the database,
+     * since on-hand may lag a restock made through another instance. Returns one line per product.
+     */
+    public List<StockLineResult> tryReserve(SortedMap<Long, Integer> quantities) {
+        List<StockLineResult> lines = reserveAll(quantities);
+        if (lines.stream().allMatch(StockLineResult::isSuccess)) {
+            return lines;
+        }
+        int corrected = resync(quantities.keySet(), () -> quantities.keySet().stream()
+                .flatMap(productId -> inventoryRepository.findStockLevel(productId).stream())
+                .toList());
+        return corrected > 0 ? reserveAll(quantities) : lines;
+    }
+
+    // Positions are locked in product-id order (the map is sorted), so overlapping baskets cannot deadlock
+    private List<StockLineResult> reserveAll(SortedMap<Long, Integer> quantities) {
+        List<StockPosition> locked = new ArrayList<>(quantities.size());
+        List<StockLineResult> results = new ArrayList<>(quantities.size());
+        try {
+            boolean allAvailable = true;
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                StockPosition position = positionFor(entry.getKey());
+                StockLineResult result = new StockLineResult(entry.getKey(), entry.getValue(), false, null, null, null);
+                if (position == null) {
+                    result.setMessage("Inventory not found for this product");
+                } else {
+                    position.lock.lock();
+                    locked.add(position);
+                    result.setPreviousStock(position.available());
+                    if (position.available() < entry.getValue()) {
+                        result.setMessage("Insufficient stock. Available: " + position.available());
+                    } else {
+                        result.setSuccess(true);
+                    }
+                }
+                allAvailable &= result.isSuccess();
+                results.add(result);
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                StockLineResult result = results.get(i);
+                if (!allAvailable) {
+                    if (result.isSuccess()) {
+                        result.setSuccess(false);
+                        result.setMessage("Not reserved, another line in the batch failed");
+                    }
+                    continue;
+                }
+                StockPosition position = locked.get(i);
+                position.reserved += result.getQuantity();
+                result.setNewStock(position.available());
+                result.setMessage("Reserved");
+            }
+            return results;
+        } finally {
+            for (StockPosition position : locked) {
+                position.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * As {@link #tryReserve}, but the hold lasts only until the surrounding transaction completes.
+     * On commit each sale's delta takes the place of its hold in one step, so the units are
+     * neither available twice nor missing in between; what is left is released on completion.
+     */
+    public List<StockLineResult> holdUntilCompletion(SortedMap<Long, Integer> quantities) {
+        List<StockLineResult> lines = tryReserve(quantities);
+        if (lines.stream().allMatch(StockLineResult::isSuccess)) {
+            Map<Long, Integer> holds = transactionHolds();
+            quantities.forEach((productId, quantity) -> holds.merge(productId, quantity, Integer::sum));
+        }
+        return lines;
+    }
+
+    // Holds of the current transaction not yet settled by a delta, bound to it as a resource
+    @SuppressWarnings("unchecked")
+    private Map<Long, Integer> transactionHolds() {
+        Map<Long, Integer> holds = (Map<Long, Integer>) TransactionSynchronizationManager.getResource(this);
+        if (holds != null) {
+            return holds;
+        }
+        Map<Long, Integer> created = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(StockLevelCache.this);
+                release(created);
+            }
+        });
+        return created;
+    }
+
+    // How much of this transaction's hold on the product a committed sale of -delta units settles
+    @SuppressWarnings("unchecked")
+    private int settleHold(Long productId, int delta) {
+        Map<Long, Integer> holds = (Map<Long, Integer>) TransactionSynchronizationManager.getResource(this);
+        Integer held = holds != null && delta < 0 ? holds.get(productId) : null;
+        if (held == null) {
+            return 0;
+        }
+        int settled = Math.min(held, -delta);
+        if (settled == held) {
+            holds.remove(productId);
+        } else {
+            holds.put(productId, held - settled);
+        }
+        return settled;
+    }
+
+    public void release(Map<Long, Integer> quantities) {
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            StockPosition position = positions.get(entry.getKey());
+            if (position == null) {
+                continue;
+            }
+            position.lock.lock();
+            try {
+                position.reserved = Math.max(0, position.reserved - entry.getValue());
+            } finally {
+                position.lock.unlock();
+            }
+        }
+    }
+
+    private void applyDelta(Long productId, int delta, int settledHold) {
+        StockPosition position = positions.get(productId);
+        if (position == null) {
+            return;
+        }
+        position.lock.lock();
+        try {
+            position.onHand += delta;
+            position.reserved = Math.max(0, position.reserved - settledHold);
+            position.changes++;
+        } finally {
+            position.lock.unlock();
+        }
+    }
+
+    // Products created by another instance are loaded on first use
+    private StockPosition positionFor(Long productId) {
+        StockPosition position = positions.get(productId);
+        if (position != null) {
+            return position;
+        }
+        List<Object[]> level = inventoryRepository.findStockLevel(productId);
+        if (level.isEmpty()) {
+            return null;
+        }
+        return positions.computeIfAbsent(productId, id -> {
+            StockPosition loaded = new StockPosition();
+            loaded.onHand = ((Number) level.get(0)[1]).intValue();
+            return loaded;
+        });
+    }
+
+    private static final class StockPosition {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int onHand;
+        private int reserved;
+        private int inFlight; // committing changes whose delta has not landed yet
+        private long changes; // deltas applied, so resync can tell a figure read mid-change
+
+        private int available() {
+            return Math.max(0, onHand - reserved);
+        }
+
+        private long changes() {
+            lock.lock();
+            try {
+                return changes;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.springapp.service;
+
+import com.example.springapp.models.StockMovementRollup;
+import com.example.springapp.models.StockTransaction;
+import com.example.springapp.repositories.StockMovementRollupRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Maintains stock_movement_daily, one row per product, day and transaction type.
+ * The ledger writer feeds every flushed batch through {@link #applyIncrement(List)};
+ * {@link #backfill(LocalDate, LocalDate)} rebuilds whole days from the raw ledger.
+ */
+@Service
+@Slf4j
+public class StockRollupService {
+
+    private static final String UPDATE_SQL = "UPDATE stock_movement_daily "
+            + "SET units = units + ?, transaction_count = transaction_count + ?, "
+            + "min_stock = LEAST(min_stock, ?), max_stock = GREATEST(max_stock, ?) "
+            + "WHERE product_id = ? AND movement_date = ? AND transaction_type = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO stock_movement_daily "
+            + "(product_id, movement_date, transaction_type, units, transaction_count, min_stock, max_stock) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_DAY_SQL = "DELETE FROM stock_movement_daily WHERE movement_date = ?";
+
+    private static final String REBUILD_DAY_SQL = "INSERT INTO stock_movement_daily "
+            + "(product_id, movement_date, transaction_type, units, transaction_count, min_stock, max_stock) "
+            + "SELECT product_id, ?, transaction_type, SUM(quantity), COUNT(*), MIN(new_stock), MAX(new_stock) "
+            + "FROM stock_transactions WHERE transaction_date >= ? AND transaction_date < ? "
+            + "GROUP BY product_id, transaction_type";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StockMovementRollupRepository rollupRepository;
+    private final ExecutorService backfillExecutor;
+
+    public StockRollupService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            StockMovementRollupRepository rollupRepository,
+            @Value("${inventory.rollup.backfill-threads:4}") int backfillThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rollupRepository = rollupRepository;
+        this.backfillExecutor = Executors.newFixedThreadPool(backfillThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillExecutor.shutdownNow();
+    }
+
+    /**
+     * Folds a batch of ledger rows into the rollup. The batch is aggregated in memory first,
+     * so a flush costs one statement per touched (product, day, type) rather than per row.
+     */
+    public void applyIncrement(List<StockTransaction> transactions) {
+        Map<RollupKey, Aggregate> aggregates = new LinkedHashMap<>();
+        for (StockTransaction tx : transactions) {
+            RollupKey key = new RollupKey(tx.getProductId(), tx.getTransactionDate().toLocalDate(),
+                    tx.getTransactionType());
+            aggregates.computeIfAbsent(key, k -> new Aggregate()).add(tx);
+        }
+
+        List<Map.Entry<RollupKey, Aggregate>> entries = new ArrayList<>(aggregates.entrySet());
+        int[][] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, entries, entries.size(), (ps, entry) -> {
+            Aggregate agg = entry.getValue();
+            ps.setLong(1, agg.units);
+            ps.setLong(2, agg.count);
+            ps.setInt(3, agg.minStock);
+            ps.setInt(4, agg.maxStock);
+            setKey(ps, 5, entry.getKey());
+        });
+
+        int i = 0;
+        for (int[] batch : updated) {
+            for (int rows : batch) {
+                Map.Entry<RollupKey, Aggregate> entry = entries.get(i++);
+                if (rows == 0) {
+                    insertOrUpdate(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the rollup for every day in [from, to] from stock_transactions, one day per task
+     * on the backfill pool, each day in its own transaction. Meant for closed days; rows the
+     * ledger writer adds to a day while it is being rebuilt may be counted twice.
+     */
+    public long backfill(LocalDate from, LocalDate to) {
+        List<Future<Integer>> days = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            LocalDate current = day;
+            days.add(backfillExecutor.submit(() -> rebuildDay(current)));
+        }
+
+        long rows = 0;
+        for (Future<Integer> day : days) {
+            try {
+                rows += day.get();
+            } catch (Exception e) {
+                throw new IllegalStateException("Rollup backfill failed: " + e.getMessage(), e);
+            }
+        }
+        log.info("Rollup backfill {} to {} wrote {} rows", from, to, rows);
+        return rows;
+    }
+
+    public List<StockMovementRollup> getSeries(Long productId, LocalDate from, LocalDate to, String transactionType) {
+        if (transactionType == null) {
+            return rollupRepository.findByProductIdAndMovementDateBetweenOrderByMovementDate(productId, from, to);
+        }
+        return rollupRepository.findByProductIdAndTransactionTypeAndMovementDateBetweenOrderByMovementDate(
+                productId, transactionType, from, to);
+    }
+
+    public List<StockMovementRollup> getSeries(Collection<Long> productIds, LocalDate from, LocalDate to,
+            String transactionType) {
+        if (transactionType == null) {
+            return rollupRepository.findByProductIdInAndMovementDateBetweenOrderByProductIdAscMovementDateAsc(
+                    productIds, from, to);
+        }
+        return rollupRepository.findByProductIdInAndTransactionTypeAndMovementDateBetweenOrderByProductIdAscMovementDateAsc(
+                productIds, transactionType, from, to);
+    }
+
+    private int rebuildDay(LocalDate day) {
+        Integer rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.update(DELETE_DAY_SQL, Date.valueOf(day));
+            return jdbcTemplate.update(REBUILD_DAY_SQL, Date.valueOf(day),
+                    Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+        });
+        return rows != null ? rows : 0;
+    }
+
+    // Another instance may create the row between our UPDATE and INSERT; fall back to UPDATE then
+    private void insertOrUpdate(RollupKey key, Aggregate agg) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, key.productId(), Date.valueOf(key.day()), key.transactionType(),
+                    agg.units, agg.count, agg.minStock, agg.maxStock);
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.update(UPDATE_SQL, agg.units, agg.count, agg.minStock, agg.maxStock,
+                    key.productId(), Date.valueOf(key.day()), key.transactionType());
+        }
+    }
+
+    private static void setKey(PreparedStatement ps, int index, RollupKey key) throws SQLException {
+        ps.setLong(index, key.productId());
+        ps.setDate(index + 1, Date.valueOf(key.day()));
+        ps.setString(index + 2, key.transactionType());
+    }
+
+    private record RollupKey(Long productId, LocalDate day, String transactionType) {
+    }
+
+    private static final class Aggregate {
+        long units;
+        long count;
+        int minStock = Integer.MAX_VALUE;
+        int maxStock = Integer.MIN_VALUE;
+
+        void add(StockTransaction tx) {
+            units += tx.getQuantity();
+            count++;
+            minStock = Math.min(minStock, tx.getNewStock());
+            maxStock = Math.max(maxStock, tx.getNewStock());
+        }
+    }
+}
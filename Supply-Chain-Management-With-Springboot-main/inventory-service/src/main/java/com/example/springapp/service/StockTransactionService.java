@@ -1,12 +1,23 @@
 package com.example.springapp.service;
 
+import com.example.springapp.dto.KeysetPage;
 import com.example.springapp.models.StockTransaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.example.springapp.repositories.StockTransactionRepository;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,23 +25,152 @@ import java.util.List;
 @Service
 public class StockTransactionService {
 
+    private static final int MAX_KEYSET_PAGE_SIZE = 1000;
+
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
     @Autowired
     StockTransactionRepository stockTransactionRepository;
 
+    @Autowired
+    StockLedgerWriter stockLedgerWriter;
+
+    @Autowired
+    ConsumptionRateEngine consumptionRateEngine;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${inventory.ledger.durable:false}")
+    boolean durableByDefault;
+
     public String recordTransaction(StockTransaction transaction) {
-        stockTransactionRepository.save(transaction);
+        return recordTransaction(transaction, durableByDefault);
+    }
+
+    /**
+     * Hands the row to the ledger writer once the surrounding transaction commits, so a
+     * rolled-back stock change never leaves a ledger row behind. The queue slot is taken
+     * before the commit, so the hand-off never waits. A durable row, or one that finds the
+     * queue full, is written by this thread inside the surrounding transaction instead.
+     */
+    public String recordTransaction(StockTransaction transaction, boolean durable) {
+        boolean synchronizing = TransactionSynchronizationManager.isSynchronizationActive();
+        if (durable || !stockLedgerWriter.tryReserve()) {
+            stockLedgerWriter.writeNow(transaction);
+            afterCommit(synchronizing, () -> recordSale(transaction));
+            return "Transaction recorded successfully";
+        }
+        if (synchronizing) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    appendToLedger(transaction);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        stockLedgerWriter.cancelReservation();
+                    }
+                }
+            });
+        } else {
+            appendToLedger(transaction);
+        }
         return "Transaction recorded successfully";
     }
 
+    private void appendToLedger(StockTransaction transaction) {
+        stockLedgerWriter.append(transaction);
+        recordSale(transaction);
+    }
+
+    private void recordSale(StockTransaction transaction) {
+        if ("SALE".equals(transaction.getTransactionType()) && transaction.getQuantity() < 0) {
+            consumptionRateEngine.recordSale(transaction.getProductId(), -transaction.getQuantity(),
+                    transaction.getTransactionDate());
+        }
+    }
+
+    private static void afterCommit(boolean synchronizing, Runnable action) {
+        if (!synchronizing) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     public List<StockTransaction> getTransactionHistory(Long productId, int pageNo, int pageSize) {
         Pageable paging = PageRequest.of(pageNo, pageSize);
         return stockTransactionRepository.findByProductIdOrderByTransactionDateDesc(productId, paging).getContent();
     }
 
+    public KeysetPage<StockTransaction> getTransactionHistoryBefore(Long productId, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_KEYSET_PAGE_SIZE);
+        Pageable limit = PageRequest.of(0, pageSize);
+        List<StockTransaction> items;
+        if (cursor == null) {
+            items = stockTransactionRepository.findLatestByProductId(productId, limit);
+        } else {
+            PageCursors.DateAndId after = PageCursors.decodeDateAndId(cursor);
+            items = stockTransactionRepository.findByProductIdBefore(productId, after.date(), after.id(), limit);
+        }
+        String nextCursor = null;
+        if (items.size() == pageSize) {
+            StockTransaction last = items.get(items.size() - 1);
+            nextCursor = PageCursors.encodeDateAndId(last.getTransactionDate(), last.getId());
+        }
+        return new KeysetPage<>(items, nextCursor);
+    }
+
     public List<StockTransaction> getTransactionsByDateRange(LocalDateTime start, LocalDateTime end) {
         return stockTransactionRepository.findByTransactionDateBetween(start, end);
     }
 
+    /**
+     * Writes every matching transaction as one JSON line, a page of rows at a time. Each page is
+     * read in its own short read-only transaction and written after it ends, so a slow client
+     * never holds a connection or cursor open, and memory stays at one page regardless of the
+     * range size. Rows committed while the export runs may or may not be included.
+     */
+    public long exportTransactions(LocalDateTime start, LocalDateTime end, Long productId, String transactionType,
+            OutputStream out) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Pageable page = PageRequest.of(0, EXPORT_PAGE_SIZE);
+        long count = 0;
+        long afterId = 0;
+        try {
+            while (true) {
+                long seekFrom = afterId;
+                List<StockTransaction> rows = readOnly.execute(status -> stockTransactionRepository.findExportPage(
+                        start, end, productId, transactionType, seekFrom, page));
+                for (StockTransaction transaction : rows) {
+                    out.write(objectMapper.writeValueAsBytes(transaction));
+                    out.write('\n');
+                }
+                count += rows.size();
+                if (rows.size() < EXPORT_PAGE_SIZE) {
+                    break;
+                }
+                afterId = rows.get(rows.size() - 1).getId();
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+
     public List<StockTransaction> getTransactionsByProductAndType(Long productId, String type) {
         return stockTransactionRepository.findByProductIdAndTransactionType(productId, type);
     }
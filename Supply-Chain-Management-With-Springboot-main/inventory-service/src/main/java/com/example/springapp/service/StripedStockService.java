@@ -0,0 +1,222 @@
+package com.example.springapp.service;
+
+import com.example.springapp.models.Inventory;
+import com.example.springapp.repositories.InventoryRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opt-in striped stock for hot products. The product's units are spread over N rows in
+ * inventory_stock_cells; a decrement claims one unlocked cell that can cover it, so N checkouts
+ * can proceed in parallel instead of queueing on the inventory row. When no cell can, all cells
+ * are locked in cell order and the remaining units are spread evenly again. Restocks take the
+ * same locked path because they need the full total for the capacity check. A claim never
+ * waits while holding a lock, so claims and rebalances cannot deadlock each other (this relies
+ * on READ COMMITTED, where rows that fail the WHERE clause are not left locked).
+ * <p>
+ * The inventory row's current_stock becomes a mirror of the cell total, refreshed by
+ * {@link #fold()}; reads that must be exact use {@link #total(Long)}.
+ */
+@Service
+@Slf4j
+public class StripedStockService {
+
+    // Starts at a random cell so drains spread out; SKIP LOCKED means a probe never waits
+    private static final String CLAIM_CELL_SQL = "SELECT cell_index FROM inventory_stock_cells "
+            + "WHERE product_id = ? AND units >= ? ORDER BY MOD(cell_index + ?, ?) LIMIT 1 FOR UPDATE SKIP LOCKED";
+
+    private static final String DECREMENT_SQL = "UPDATE inventory_stock_cells SET units = units - ? "
+            + "WHERE product_id = ? AND cell_index = ?";
+
+    private static final String LOCK_CELLS_SQL = "SELECT cell_index, units FROM inventory_stock_cells "
+            + "WHERE product_id = ? ORDER BY cell_index FOR UPDATE";
+
+    private static final String SET_CELL_SQL = "UPDATE inventory_stock_cells SET units = ? "
+            + "WHERE product_id = ? AND cell_index = ?";
+
+    private static final String INSERT_CELL_SQL = "INSERT INTO inventory_stock_cells "
+            + "(product_id, cell_index, units) VALUES (?, ?, ?)";
+
+    private static final String DELETE_CELLS_SQL = "DELETE FROM inventory_stock_cells WHERE product_id = ?";
+
+    private static final String TOTAL_SQL = "SELECT COALESCE(SUM(units), 0) FROM inventory_stock_cells WHERE product_id = ?";
+
+    private static final String CELL_TOTAL = "(SELECT COALESCE(SUM(c.units), 0) FROM inventory_stock_cells c "
+            + "WHERE c.product_id = inventory.product_id)";
+
+    private static final String FOLD_SQL = "UPDATE inventory SET current_stock = " + CELL_TOTAL
+            + ", version = version + 1 WHERE stock_cells > 0 AND current_stock <> " + CELL_TOTAL;
+
+    private static final String STRIPED_PRODUCTS_SQL = "SELECT product_id, stock_cells FROM inventory WHERE stock_cells > 0";
+
+    public enum Status {
+        APPLIED, INSUFFICIENT, EXCEEDS_CAPACITY, NOT_STRIPED
+    }
+
+    public record Adjustment(Status status, int previousTotal, int newTotal) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryRepository inventoryRepository;
+    private final int maxCells;
+    private final ConcurrentHashMap<Long, Integer> stripedProducts = new ConcurrentHashMap<>();
+
+    public StripedStockService(JdbcTemplate jdbcTemplate, InventoryRepository inventoryRepository,
+            @Value("${inventory.striping.max-cells:32}") int maxCells) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.inventoryRepository = inventoryRepository;
+        this.maxCells = maxCells;
+    }
+
+    @PostConstruct
+    public void load() {
+        reloadStripedProducts();
+    }
+
+    public boolean isStriped(Long productId) {
+        return stripedProducts.containsKey(productId);
+    }
+
+    public int total(Long productId) {
+        Integer total = jdbcTemplate.queryForObject(TOTAL_SQL, Integer.class, productId);
+        return total != null ? total : 0;
+    }
+
+    /** Must run inside the caller's transaction; cell locks are held until it commits. */
+    public Adjustment adjust(Long productId, int quantity, int maxCapacity) {
+        int cells = stripedProducts.getOrDefault(productId, 0);
+        if (quantity < 0 && cells > 0) {
+            int units = -quantity;
+            List<Integer> claimed = jdbcTemplate.queryForList(CLAIM_CELL_SQL, Integer.class,
+                    productId, units, ThreadLocalRandom.current().nextInt(cells), cells);
+            if (!claimed.isEmpty()) {
+                jdbcTemplate.update(DECREMENT_SQL, units, productId, claimed.get(0));
+                int newTotal = total(productId);
+                return new Adjustment(Status.APPLIED, newTotal + units, newTotal);
+            }
+        }
+        return rebalance(productId, quantity, maxCapacity);
+    }
+
+    @Transactional
+    public String enable(Long productId, int cells) {
+        if (cells < 2 || cells > maxCells) {
+            throw new IllegalArgumentException("cells must be between 2 and " + maxCells);
+        }
+        List<Inventory> locked = inventoryRepository.lockByProductIdsInOrder(List.of(productId));
+        if (locked.isEmpty()) {
+            return "Inventory not found";
+        }
+        Inventory inventory = locked.get(0);
+        int total = inventory.getStockCells() > 0 ? lockedTotal(productId) : inventory.getCurrentStock();
+
+        jdbcTemplate.update(DELETE_CELLS_SQL, productId);
+        List<Object[]> rows = new ArrayList<>(cells);
+        int[] spread = spread(total, cells);
+        for (int i = 0; i < cells; i++) {
+            rows.add(new Object[] { productId, i, spread[i] });
+        }
+        jdbcTemplate.batchUpdate(INSERT_CELL_SQL, rows);
+        inventory.setCurrentStock(total);
+        inventory.setStockCells(cells);
+        afterCommit(() -> stripedProducts.put(productId, cells));
+        return "Stock for product " + productId + " split across " + cells + " cells";
+    }
+
+    @Transactional
+    public String disable(Long productId) {
+        List<Inventory> locked = inventoryRepository.lockByProductIdsInOrder(List.of(productId));
+        if (locked.isEmpty()) {
+            return "Inventory not found";
+        }
+        Inventory inventory = locked.get(0);
+        if (inventory.getStockCells() == 0) {
+            return "Stock for product " + productId + " is not striped";
+        }
+        int total = lockedTotal(productId);
+        jdbcTemplate.update(DELETE_CELLS_SQL, productId);
+        inventory.setCurrentStock(total);
+        inventory.setStockCells(0);
+        afterCommit(() -> stripedProducts.remove(productId));
+        return "Stock for product " + productId + " merged back into one row";
+    }
+
+    // Copies cell totals into inventory.current_stock and picks up products striped by other instances
+    @Scheduled(fixedDelayString = "${inventory.striping.fold-interval-ms:5000}")
+    public void fold() {
+        if (!stripedProducts.isEmpty()) {
+            jdbcTemplate.update(FOLD_SQL);
+        }
+        reloadStripedProducts();
+    }
+
+    private Adjustment rebalance(Long productId, int quantity, int maxCapacity) {
+        List<Integer> units = jdbcTemplate.query(LOCK_CELLS_SQL, (rs, rowNum) -> rs.getInt("units"), productId);
+        if (units.isEmpty()) {
+            return new Adjustment(Status.NOT_STRIPED, 0, 0);
+        }
+        int total = units.stream().mapToInt(Integer::intValue).sum();
+        int newTotal = total + quantity;
+        if (newTotal < 0) {
+            return new Adjustment(Status.INSUFFICIENT, total, total);
+        }
+        if (newTotal > maxCapacity) {
+            return new Adjustment(Status.EXCEEDS_CAPACITY, total, total);
+        }
+
+        int[] spread = spread(newTotal, units.size());
+        List<Object[]> changed = new ArrayList<>();
+        for (int i = 0; i < spread.length; i++) {
+            if (spread[i] != units.get(i)) {
+                changed.add(new Object[] { spread[i], productId, i });
+            }
+        }
+        jdbcTemplate.batchUpdate(SET_CELL_SQL, changed);
+        return new Adjustment(Status.APPLIED, total, newTotal);
+    }
+
+    private int lockedTotal(Long productId) {
+        return jdbcTemplate.query(LOCK_CELLS_SQL, (rs, rowNum) -> rs.getInt("units"), productId)
+                .stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private void reloadStripedProducts() {
+        Map<Long, Integer> current = new HashMap<>();
+        jdbcTemplate.query(STRIPED_PRODUCTS_SQL, rs -> {
+            current.put(rs.getLong("product_id"), rs.getInt("stock_cells"));
+        });
+        stripedProducts.keySet().retainAll(current.keySet());
+        stripedProducts.putAll(current);
+    }
+
+    private static int[] spread(int total, int cells) {
+        int[] spread = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            spread[i] = total / cells + (i < total % cells ? 1 : 0);
+        }
+        return spread;
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
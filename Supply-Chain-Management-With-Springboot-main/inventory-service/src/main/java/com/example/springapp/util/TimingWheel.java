@@ -0,0 +1,271 @@
+package com.example.springapp.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for large numbers of short-lived timeouts. Scheduling and cancelling
+ * are O(1); only buckets that actually hold timeouts enter the delay queue, so an idle wheel costs
+ * nothing and the reaper thread wakes at most once per tick. Timeouts further out than one wheel
+ * can cover go to an overflow wheel with coarser ticks and cascade down as time advances.
+ * <p>
+ * Tasks run on the reaper thread after the wheel lock has been released, so they may schedule or
+ * cancel other timeouts, but they should be short.
+ */
+@Slf4j
+public class TimingWheel implements AutoCloseable {
+
+    private final DelayQueue<Bucket> delayQueue = new DelayQueue<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Level root;
+    private final Thread reaper;
+    private volatile boolean running = true;
+
+    public TimingWheel(String name, long tickMs, int wheelSize) {
+        this.root = new Level(tickMs, wheelSize, now());
+        this.reaper = new Thread(this::reap, name);
+        this.reaper.setDaemon(true);
+        this.reaper.start();
+    }
+
+    public Timeout schedule(long delayMs, Runnable task) {
+        Timeout timeout = new Timeout(task, now() + Math.max(0, delayMs));
+        pending.incrementAndGet();
+        List<Timeout> due = new ArrayList<>(1);
+        lock.readLock().lock();
+        try {
+            insert(timeout, due);
+        } finally {
+            lock.readLock().unlock();
+        }
+        fire(due);
+        return timeout;
+    }
+
+    public int pending() {
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        reaper.interrupt();
+    }
+
+    private void insert(Timeout timeout, List<Timeout> due) {
+        if (!root.add(timeout) && !timeout.done.get()) {
+            due.add(timeout);
+        }
+    }
+
+    private void reap() {
+        while (running) {
+            try {
+                Bucket bucket = delayQueue.poll(200, TimeUnit.MILLISECONDS);
+                if (bucket == null) {
+                    continue;
+                }
+                List<Timeout> due = new ArrayList<>();
+                lock.writeLock().lock();
+                try {
+                    while (bucket != null) {
+                        root.advanceClock(bucket.getExpiration());
+                        bucket.flush(timeout -> insert(timeout, due));
+                        bucket = delayQueue.poll();
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                fire(due);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Timing wheel reaper failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void fire(List<Timeout> due) {
+        for (Timeout timeout : due) {
+            if (timeout.done.compareAndSet(false, true)) {
+                pending.decrementAndGet();
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    log.error("Timeout task failed: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /** Handle returned by {@link #schedule}; cancelling unlinks it from its bucket in O(1). */
+    public final class Timeout {
+
+        private final Runnable task;
+        private final long expirationMs;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long expirationMs) {
+            this.task = task;
+            this.expirationMs = expirationMs;
+        }
+
+        /** Returns false if the task already ran or was cancelled before. */
+        public boolean cancel() {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+            pending.decrementAndGet();
+            Bucket current = bucket;
+            while (current != null) {
+                current.remove(this);
+                current = bucket;
+            }
+            return true;
+        }
+    }
+
+    private final class Level {
+
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final Bucket[] buckets;
+        private long currentTime;
+        private volatile Level overflow;
+
+        private Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket();
+            }
+            this.currentTime = startMs - (startMs % tickMs);
+        }
+
+        // Returns false when the timeout is already due (or cancelled) and must not be stored
+        private boolean add(Timeout timeout) {
+            long expiration = timeout.expirationMs;
+            if (timeout.done.get() || expiration < currentTime + tickMs) {
+                return false;
+            }
+            if (expiration < currentTime + interval) {
+                long virtualId = expiration / tickMs;
+                Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(timeout);
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    delayQueue.offer(bucket);
+                }
+                return true;
+            }
+            return overflow().add(timeout);
+        }
+
+        private Level overflow() {
+            if (overflow == null) {
+                synchronized (this) {
+                    if (overflow == null) {
+                        overflow = new Level(interval, wheelSize, currentTime);
+                    }
+                }
+            }
+            return overflow;
+        }
+
+        private void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+    }
+
+    private static final class Bucket implements Delayed {
+
+        private final AtomicLong expiration = new AtomicLong(-1L);
+        private Timeout first;
+
+        private synchronized void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = first;
+            if (first != null) {
+                first.prev = timeout;
+            }
+            first = timeout;
+        }
+
+        private synchronized void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                first = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        // Detaches every timeout and hands it back for re-insertion at the current time
+        private synchronized void flush(Consumer<Timeout> sink) {
+            Timeout timeout = first;
+            first = null;
+            expiration.set(-1L);
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                timeout.bucket = null;
+                sink.accept(timeout);
+                timeout = next;
+            }
+        }
+
+        private boolean setExpiration(long expirationMs) {
+            return expiration.getAndSet(expirationMs) != expirationMs;
+        }
+
+        private long getExpiration() {
+            return expiration.get();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(getExpiration() - now(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getExpiration(), ((Bucket) other).getExpiration());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.springapp.service;
+
+import com.example.springapp.client.ProductClient;
+import com.example.springapp.models.Inventory;
+import com.example.springapp.repositories.InventoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Many threads selling one hot product through InventoryService.updateStock: no unit may be
+ * lost or sold twice, and the ledger must add up to the stock left on the row.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class InventoryServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int SALES = 4000;
+
+    @Autowired
+    InventoryService inventoryService;
+
+    @Autowired
+    InventoryRepository inventoryRepository;
+
+    @Autowired
+    StockLedgerWriter stockLedgerWriter;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    ProductClient productClient;
+
+    @Test
+    void parallelSalesLoseNoUnits() throws Exception {
+        long productId = 1L;
+        createProduct(productId, 5000);
+
+        List<String> results = sellOneUnitEach(productId, SALES);
+
+        assertEquals(SALES, count(results, "Stock updated"));
+        assertStockAndLedger(productId, 5000 - SALES);
+    }
+
+    @Test
+    void parallelSalesNeverOversell() throws Exception {
+        long productId = 2L;
+        createProduct(productId, 3000);
+
+        List<String> results = sellOneUnitEach(productId, SALES);
+
+        assertEquals(3000, count(results, "Stock updated"));
+        assertEquals(SALES - 3000, count(results, "Insufficient stock"));
+        assertStockAndLedger(productId, 0);
+    }
+
+    // Stock arrives as a RESTOCK so the ledger sums to the stock from the first row
+    private void createProduct(long productId, int stock) {
+        inventoryService.createInventoryFromProduct(productId, "Product " + productId, 0);
+        Inventory inventory = inventoryRepository.findByProductId(productId).orElseThrow();
+        inventory.setMaxCapacity(stock * 2);
+        inventoryRepository.saveAndFlush(inventory);
+        assertEquals(1, count(List.of(inventoryService.restockProduct(productId, stock, "test")), "Stock updated"));
+    }
+
+    private List<String> sellOneUnitEach(long productId, int sales) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> futures = new ArrayList<>(sales);
+            for (int i = 0; i < sales; i++) {
+                futures.add(executor.submit(() -> inventoryService.updateStock(productId, -1, "SALE", "test", null)));
+            }
+            List<String> results = new ArrayList<>(sales);
+            for (Future<String> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void assertStockAndLedger(long productId, int expectedStock) throws Exception {
+        assertEquals(expectedStock, inventoryRepository.findByProductId(productId).orElseThrow().getCurrentStock());
+
+        stockLedgerWriter.flushPending().get();
+        Long ledgerSum = jdbcTemplate.queryForObject(
+                "SELECT SUM(quantity) FROM stock_transactions WHERE product_id = ?", Long.class, productId);
+        assertEquals(expectedStock, ledgerSum);
+    }
+
+    private static long count(List<String> results, String prefix) {
+        return results.stream().filter(result -> result.startsWith(prefix)).count();
+    }
+}
@@ -0,0 +1,42 @@
+#!/usr/bin/env bash
+# Saves one Prometheus scrape of every running service to scrapes/<timestamp>/<service>.prom.
+# Repeat with -i <seconds> to keep scraping; summarize.py reads the saved files offline.
+#
+#   ./scrape.sh                 one scrape of all services on localhost
+#   ./scrape.sh -i 15           scrape every 15 seconds until interrupted
+#   HOST=10.0.0.5 ./scrape.sh   services on another host
+
+set -u
+
+HOST="${HOST:-localhost}"
+OUT_DIR="${OUT_DIR:-$(dirname "$0")/scrapes}"
+SERVICES="eureka-server:8761 product-service:8081 inventory-service:8082 order-service:8083 recommendation-service:8084 user-service:8085"
+
+interval=""
+while getopts "i:" opt; do
+  case "$opt" in
+    i) interval="$OPTARG" ;;
+    *) echo "usage: $0 [-i seconds]" >&2; exit 2 ;;
+  esac
+done
+
+scrape_once() {
+  local dir="$OUT_DIR/$(date -u +%Y%m%dT%H%M%SZ)"
+  mkdir -p "$dir"
+  for entry in $SERVICES; do
+    local name="${entry%%:*}" port="${entry##*:}"
+    if curl -fsS --max-time 5 "http://$HOST:$port/actuator/prometheus" -o "$dir/$name.prom"; then
+      echo "$name -> $dir/$name.prom"
+    else
+      rm -f "$dir/$name.prom"
+      echo "$name: not reachable on $HOST:$port" >&2
+    fi
+  done
+}
+
+scrape_once
+if [ -n "$interval" ]; then
+  while sleep "$interval"; do
+    scrape_once
+  done
+fi
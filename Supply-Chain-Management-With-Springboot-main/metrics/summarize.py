@@ -0,0 +1,118 @@
+#!/usr/bin/env python3
+"""Latency table from saved Prometheus scrapes (see scrape.sh), no Prometheus server needed.
+
+Every timer with a percentile histogram is reported as count, mean and p50/p95/p99, estimated
+from its buckets the same way histogram_quantile() does. Given a second, earlier scrape the
+figures cover only the window between the two.
+
+    ./summarize.py scrapes/20261018T120000Z
+    ./summarize.py scrapes/20261018T120500Z scrapes/20261018T120000Z --match order_place
+"""
+
+import argparse
+import math
+import os
+import re
+import sys
+from collections import defaultdict
+
+SAMPLE = re.compile(r'^([a-zA-Z_:][a-zA-Z0-9_:]*)(?:\{(.*)\})?\s+(\S+)')
+LABEL = re.compile(r'([a-zA-Z_][a-zA-Z0-9_]*)="((?:[^"\\]|\\.)*)"')
+QUANTILES = (0.5, 0.95, 0.99)
+
+
+def read_histograms(path):
+    """Returns {(metric, labels): {"buckets": {le: count}, "sum": s, "count": c}}."""
+    files = [path] if os.path.isfile(path) else sorted(
+        os.path.join(path, name) for name in os.listdir(path) if name.endswith('.prom'))
+    histograms = defaultdict(lambda: {'buckets': {}, 'sum': 0.0, 'count': 0.0})
+    for file in files:
+        with open(file) as f:
+            for line in f:
+                if line.startswith('#'):
+                    continue
+                match = SAMPLE.match(line)
+                if not match:
+                    continue
+                name, labels, value = match.group(1), match.group(2) or '', float(match.group(3))
+                pairs = dict(LABEL.findall(labels))
+                for suffix in ('_bucket', '_sum', '_count'):
+                    if name.endswith(suffix):
+                        metric = name[:-len(suffix)]
+                        le = pairs.pop('le', None)
+                        key = (metric, tuple(sorted(pairs.items())))
+                        if suffix == '_bucket':
+                            histograms[key]['buckets'][math.inf if le == '+Inf' else float(le)] = value
+                        else:
+                            histograms[key][suffix[1:]] = value
+                        break
+    return {key: h for key, h in histograms.items() if h['buckets']}
+
+
+def quantile(q, buckets):
+    """Linear interpolation inside the bucket holding the q-th observation."""
+    bounds = sorted(buckets)
+    total = buckets[bounds[-1]]
+    if total == 0:
+        return math.nan
+    rank = q * total
+    lower_bound, lower_count = 0.0, 0.0
+    for bound in bounds:
+        count = buckets[bound]
+        if count >= rank:
+            if math.isinf(bound):
+                return lower_bound
+            if count == lower_count:
+                return bound
+            return lower_bound + (bound - lower_bound) * (rank - lower_count) / (count - lower_count)
+        lower_bound, lower_count = bound, count
+    return lower_bound
+
+
+def minus(current, earlier):
+    if earlier is None:
+        return current
+    return {
+        'buckets': {le: n - earlier['buckets'].get(le, 0.0) for le, n in current['buckets'].items()},
+        'sum': current['sum'] - earlier['sum'],
+        'count': current['count'] - earlier['count'],
+    }
+
+
+def millis(seconds):
+    return '-' if math.isnan(seconds) else '%.2f' % (seconds * 1000)
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__, formatter_class=argparse.RawDescriptionHelpFormatter)
+    parser.add_argument('scrape', help='scrape directory or .prom file')
+    parser.add_argument('earlier', nargs='?', help='earlier scrape to subtract')
+    parser.add_argument('--match', default='', help='only metrics whose name contains this')
+    args = parser.parse_args()
+
+    current = read_histograms(args.scrape)
+    earlier = read_histograms(args.earlier) if args.earlier else {}
+
+    rows = []
+    for (metric, labels), histogram in sorted(current.items()):
+        if args.match not in metric or not metric.endswith('_seconds'):
+            continue
+        window = minus(histogram, earlier.get((metric, labels)))
+        if window['count'] <= 0:
+            continue
+        tags = ','.join('%s=%s' % (k, v) for k, v in labels if k != 'application')
+        rows.append([metric, tags, '%d' % window['count'], millis(window['sum'] / window['count'])]
+                    + [millis(quantile(q, window['buckets'])) for q in QUANTILES])
+
+    if not rows:
+        print('No timer histograms with observations found', file=sys.stderr)
+        return 1
+    header = ['metric', 'tags', 'count', 'mean ms'] + ['p%g ms' % (q * 100) for q in QUANTILES]
+    widths = [max(len(str(row[i])) for row in rows + [header]) for i in range(len(header))]
+    for row in [header] + rows:
+        print('  '.join(str(cell).ljust(width) for cell, width in zip(row, widths)))
+    return 0
+
+
+if __name__ == '__main__':
+    sys.exit(main())
@@ -1,9 +1,16 @@
 package com.example.springapp.client;
 
+import com.example.springapp.dto.BatchStockRequest;
+import com.example.springapp.dto.BatchStockResponse;
+import com.example.springapp.dto.ReservationRequest;
+import com.example.springapp.dto.ReservationResponse;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 import java.util.Map;
 
@@ -13,5 +20,21 @@ public interface InventoryClient {
     @PutMapping("/inventory/reduce/{productId}")
     String reduceStock(
             @PathVariable("productId") Long productId,
-            @RequestBody Map<String, Object> request);
+            @RequestBody Map<String, Object> request,
+            @RequestHeader("Idempotency-Key") String idempotencyKey);
+
+    @PutMapping("/inventory/reduce-batch")
+    BatchStockResponse reduceStockBatch(@RequestBody BatchStockRequest request);
+
+    @PostMapping("/inventory/reservations")
+    ReservationResponse reserveStock(@RequestBody ReservationRequest request);
+
+    @PutMapping("/inventory/reservations/{reference}/commit")
+    BatchStockResponse commitReservation(
+            @PathVariable("reference") String reference,
+            @RequestBody BatchStockRequest fallback,
+            @RequestHeader("Idempotency-Key") String idempotencyKey);
+
+    @DeleteMapping("/inventory/reservations/{reference}")
+    String releaseReservation(@PathVariable("reference") String reference);
 }
@@ -0,0 +1,77 @@
+package com.example.springapp.config;
+
+import com.example.springapp.models.OrderItem;
+import com.example.springapp.models.Orders;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.Column;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.sequence.SequenceSupport;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Moves each pooled id sequence past the ids already in its table. The entities below used to
+ * take IDENTITY ids, so on an existing database their new sequence (a one-row table on MySQL,
+ * a native sequence on H2) would start handing out ids that are taken. Runs once at startup,
+ * after Hibernate has created the sequences and before the web server, listeners and
+ * schedulers start, and never moves a sequence backwards, so it is safe on every restart.
+ */
+@Component
+@Slf4j
+public class SequenceAligner {
+
+    private static final List<Class<?>> ENTITIES = List.of(Orders.class, OrderItem.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+
+    public SequenceAligner(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    @PostConstruct
+    public void align() {
+        for (Class<?> entity : ENTITIES) {
+            align(entity);
+        }
+    }
+
+    private void align(Class<?> entity) {
+        Field id = Arrays.stream(entity.getDeclaredFields())
+                .filter(field -> field.isAnnotationPresent(Id.class))
+                .findFirst()
+                .orElseThrow();
+        SequenceGenerator generator = id.getAnnotation(SequenceGenerator.class);
+        String table = entity.getAnnotation(Table.class).name();
+        Long maxId = jdbcTemplate.queryForObject(
+                "SELECT MAX(" + id.getAnnotation(Column.class).name() + ") FROM " + table, Long.class);
+        if (maxId == null) {
+            return;
+        }
+
+        // The pooled optimizer hands out (value - allocationSize, value], so value must clear maxId by a block
+        long target = maxId + generator.allocationSize() + 1;
+        String sequence = generator.sequenceName();
+        SequenceSupport sequences = dialect.getSequenceSupport();
+        if (sequences.supportsSequences()) {
+            Long next = jdbcTemplate.queryForObject(sequences.getSequenceNextValString(sequence), Long.class);
+            if (next != null && next < target) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + target);
+                log.info("Moved sequence {} to {} past existing ids in {}", sequence, target, table);
+            }
+        } else if (jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ? WHERE next_val < ?", target, target) > 0) {
+            log.info("Moved sequence table {} to {} past existing ids in {}", sequence, target, table);
+        }
+    }
+}
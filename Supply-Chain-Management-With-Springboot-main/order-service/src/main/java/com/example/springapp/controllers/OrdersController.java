@@ -1,19 +1,25 @@
 package com.example.springapp.controllers;
 
+import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.data.domain.Page;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import com.example.springapp.dto.KeysetPage;
+import com.example.springapp.models.OrderItem;
 import com.example.springapp.models.Orders;
+import com.example.springapp.service.OrderIntakePipeline;
 import com.example.springapp.service.OrdersService;
 
 @RestController
@@ -23,23 +29,53 @@ public class OrdersController {
 
     private static final Logger logger = LoggerFactory.getLogger(OrdersController.class);
 
+    // view=full returns orders with their items; view=summary leaves items out and skips the item query
+    private static final String VIEW_FULL = "full";
+
+    private static final String RESPOND_ASYNC = "respond-async";
+
+    private static final String VIEW_SUMMARY = "summary";
+
+    private static final String UNKNOWN_VIEW = "view must be " + VIEW_FULL + " or " + VIEW_SUMMARY;
+
     @Autowired
     OrdersService ordersService;
 
+    @Autowired
+    OrderIntakePipeline orderIntakePipeline;
+
+    /**
+     * Places an order. With "Prefer: respond-async" the order is only validated and stored as
+     * Pending, and 202 is returned with its status URL; stock is reserved by the intake pipeline.
+     * A full pipeline answers 429.
+     */
     @PostMapping
-    public ResponseEntity<?> placeOrder(@RequestBody Orders order) {
+    public ResponseEntity<?> placeOrder(@RequestBody Orders order,
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
         try {
             if (order == null) {
                 logger.warn("Attempt to place order with null data");
                 return buildErrorResponse("Order data is required", HttpStatus.BAD_REQUEST);
             }
+            if (prefer != null && prefer.contains(RESPOND_ASYNC)) {
+                return placeOrderAsync(order);
+            }
 
             String result = ordersService.placeOrder(order);
-            logger.info("Order placed successfully");
+            logger.info("Order {} placed as {}", order.getId(), order.getStatus());
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", result);
             response.put("order", order);
+            // Same outcomes as async intake: refused stock rejects the order, unreachable inventory leaves it Pending
+            if ("Rejected".equals(order.getStatus())) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            if ("Pending".equals(order.getStatus())) {
+                String statusUrl = "/orders/" + order.getId() + "/status";
+                response.put("statusUrl", statusUrl);
+                return ResponseEntity.status(HttpStatus.ACCEPTED).location(URI.create(statusUrl)).body(response);
+            }
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
             
         } catch (Exception e) {
@@ -51,9 +87,13 @@ public class OrdersController {
     @GetMapping
     public ResponseEntity<?> getAllOrders(
             @RequestParam(defaultValue = "0") int pageNo,
-            @RequestParam(defaultValue = "50") int pageSize) {
+            @RequestParam(defaultValue = "50") int pageSize,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
+        if (!isKnownView(view)) {
+            return buildErrorResponse(UNKNOWN_VIEW, HttpStatus.BAD_REQUEST);
+        }
         try {
-            Page<Orders> orders = ordersService.getAllOrders(pageNo, pageSize);
+            Page<Orders> orders = ordersService.getAllOrders(pageNo, pageSize, VIEW_FULL.equals(view));
             logger.info("Retrieved {} orders", orders.getTotalElements());
             return ResponseEntity.ok(orders);
             
@@ -67,9 +107,13 @@ public class OrdersController {
     public ResponseEntity<?> getOrdersByStatus(
             @PathVariable String status,
             @RequestParam(defaultValue = "0") int pageNo,
-            @RequestParam(defaultValue = "50") int pageSize) {
+            @RequestParam(defaultValue = "50") int pageSize,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
+        if (!isKnownView(view)) {
+            return buildErrorResponse(UNKNOWN_VIEW, HttpStatus.BAD_REQUEST);
+        }
         try {
-            List<Orders> orders = ordersService.getOrderByStatus(status, pageNo, pageSize);
+            List<Orders> orders = ordersService.getOrderByStatus(status, pageNo, pageSize, VIEW_FULL.equals(view));
             logger.info("Retrieved {} orders with status: {}", orders.size(), status);
             return ResponseEntity.ok(orders);
             
@@ -79,10 +123,124 @@ public class OrdersController {
         }
     }
 
+    /**
+     * Newest orders first, one page per call; pass the returned nextCursor to get the next page.
+     * No COUNT(*) is run: total comes from the per-status counts.
+     */
+    @GetMapping("/keyset")
+    public ResponseEntity<?> getOrdersKeyset(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
+        return keysetPage(null, cursor, size, view);
+    }
+
+    @GetMapping("/status/{status}/keyset")
+    public ResponseEntity<?> getOrdersByStatusKeyset(
+            @PathVariable String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
+        return keysetPage(status, cursor, size, view);
+    }
+
+    @GetMapping("/counts")
+    public ResponseEntity<?> getOrderCounts() {
+        try {
+            return ResponseEntity.ok(ordersService.getOrderCounts());
+        } catch (Exception e) {
+            logger.error("Error retrieving order counts", e);
+            return buildErrorResponse("Failed to retrieve order counts", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /** Orders per status and recent revenue per day, served from memory. */
+    @GetMapping("/summary")
+    public ResponseEntity<?> getOrderSummary() {
+        return ResponseEntity.ok(ordersService.getOrderSummary());
+    }
+
+    private ResponseEntity<?> keysetPage(String status, String cursor, int size, String view) {
+        if (!isKnownView(view)) {
+            return buildErrorResponse(UNKNOWN_VIEW, HttpStatus.BAD_REQUEST);
+        }
+        try {
+            KeysetPage<Orders> page = ordersService.getOrdersBefore(status, cursor, size, VIEW_FULL.equals(view));
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return buildErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            logger.error("Error retrieving orders (status {})", status, e);
+            return buildErrorResponse("Failed to retrieve orders", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private ResponseEntity<?> placeOrderAsync(Orders order) {
+        String invalid = validateForIntake(order);
+        if (invalid != null) {
+            return buildErrorResponse(invalid, HttpStatus.BAD_REQUEST);
+        }
+        Orders saved;
+        try {
+            saved = orderIntakePipeline.submit(order);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Order intake saturated: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("message", "Too many orders in progress, please retry shortly"));
+        }
+
+        String statusUrl = "/orders/" + saved.getId() + "/status";
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Order accepted with order id " + saved.getId());
+        response.put("orderId", saved.getId());
+        response.put("status", saved.getStatus());
+        response.put("statusUrl", statusUrl);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create(statusUrl))
+                .header("Preference-Applied", RESPOND_ASYNC)
+                .body(response);
+    }
+
+    // Async orders are checked up front, since nobody is waiting to see the reservation fail
+    private static String validateForIntake(Orders order) {
+        if (order.getItems() == null || order.getItems().isEmpty()) {
+            return "Order must have at least one item";
+        }
+        for (OrderItem item : order.getItems()) {
+            if (item.getProductId() == null) {
+                return "Every item needs a productId";
+            }
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                return "Item quantity must be positive for product " + item.getProductId();
+            }
+            if (item.getUnitPrice() == null || item.getUnitPrice() < 0) {
+                return "Item unitPrice is required for product " + item.getProductId();
+            }
+        }
+        return null;
+    }
+
+    @GetMapping("/{id}/status")
+    public ResponseEntity<?> getOrderStatus(@PathVariable int id) {
+        String status = ordersService.getOrderStatus(id);
+        if (status == null) {
+            return buildErrorResponse("Order not found", HttpStatus.NOT_FOUND);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("orderId", id);
+        response.put("status", status);
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<?> getOrderById(@PathVariable int id) {
+    public ResponseEntity<?> getOrderById(@PathVariable int id,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
+        if (!isKnownView(view)) {
+            return buildErrorResponse(UNKNOWN_VIEW, HttpStatus.BAD_REQUEST);
+        }
         try {
-            Orders order = ordersService.getOrderById(id);
+            Orders order = ordersService.getOrderById(id, VIEW_FULL.equals(view));
             
             if (order == null) {
                 return buildErrorResponse("Order not found", HttpStatus.NOT_FOUND);
@@ -106,6 +264,9 @@ public class OrdersController {
             response.put("message", result);
             return ResponseEntity.ok(response);
             
+        } catch (IllegalStateException e) {
+            logger.warn("Order {} not accepted: {}", id, e.getMessage());
+            return buildErrorResponse(e.getMessage(), HttpStatus.CONFLICT);
         } catch (Exception e) {
             logger.error("Error accepting order: {}", id, e);
             return buildErrorResponse("Failed to accept order", HttpStatus.INTERNAL_SERVER_ERROR);
@@ -154,12 +315,19 @@ public class OrdersController {
             response.put("message", result);
             return ResponseEntity.ok(response);
             
+        } catch (IllegalStateException e) {
+            logger.warn("Order {} not deleted: {}", id, e.getMessage());
+            return buildErrorResponse(e.getMessage(), HttpStatus.CONFLICT);
         } catch (Exception e) {
             logger.error("Error deleting order: {}", id, e);
             return buildErrorResponse("Failed to delete order", HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    private static boolean isKnownView(String view) {
+        return VIEW_FULL.equals(view) || VIEW_SUMMARY.equals(view);
+    }
+
     private ResponseEntity<?> buildErrorResponse(String message, HttpStatus status) {
         Map<String, String> error = new HashMap<>();
         error.put("message", message);
@@ -0,0 +1,19 @@
+package com.example.springapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummary {
+    private Map<String, Long> ordersByStatus;
+    private long totalOrders;
+    private Map<String, Double> revenueByDay; // ISO date -> totalAmount of Placed and later orders
+    private double revenueToday;
+    private LocalDateTime refreshedAt; // last rebuild from the database
+}
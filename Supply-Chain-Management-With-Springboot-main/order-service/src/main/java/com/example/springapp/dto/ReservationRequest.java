@@ -0,0 +1,17 @@
+package com.example.springapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationRequest {
+    private String reference;
+    private String performedBy;
+    private Long ttlSeconds;
+    private List<StockLineRequest> items;
+}
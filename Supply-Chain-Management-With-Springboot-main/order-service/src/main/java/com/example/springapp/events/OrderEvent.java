@@ -17,10 +17,19 @@ public class OrderEvent {
     private Integer quantity;
     private Double totalAmount;
     private LocalDateTime timestamp;
+    private Double unitPrice; // ORDER_LINE only
+    private String eventId; // unique per event, the same when the outbox relay sends it again
+
+    public OrderEvent(EventType eventType, Long orderId, Long productId, Integer quantity, Double totalAmount,
+            LocalDateTime timestamp) {
+        this(eventType, orderId, productId, quantity, totalAmount, timestamp, null, null);
+    }
 
     public enum EventType {
         CREATED,
         CONFIRMED,
-        CANCELLED
+        CANCELLED,
+        // One per order item, keyed by productId: productId, quantity, unitPrice and the line total
+        ORDER_LINE
     }
 }
@@ -1,30 +1,37 @@
 package com.example.springapp.events;
 
-import lombok.extern.slf4j.Slf4j;
+import com.example.springapp.config.KafkaSendMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends order events to Kafka. Services do not call this directly: they write order_outbox rows
+ * and {@link OrderOutboxRelay} sends them from there.
+ */
 @Service
-@Slf4j
 public class OrderEventPublisher {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaSendMetrics sendMetrics;
 
     @Value("${kafka.topic.order-events}")
     private String orderEventsTopic;
 
-    public OrderEventPublisher(KafkaTemplate<String, Object> kafkaTemplate) {
+    public OrderEventPublisher(KafkaTemplate<String, Object> kafkaTemplate, KafkaSendMetrics sendMetrics) {
         this.kafkaTemplate = kafkaTemplate;
+        this.sendMetrics = sendMetrics;
     }
 
-    public void publishOrderEvent(OrderEvent event) {
-        try {
-            log.info("Publishing order event: {} for order ID: {}", event.getEventType(), event.getOrderId());
-            kafkaTemplate.send(orderEventsTopic, event.getOrderId().toString(), event);
-            log.info("Order event published successfully");
-        } catch (Exception e) {
-            log.error("Error publishing order event: {}", e.getMessage(), e);
-        }
+    // Keyed by orderId so CREATED, CONFIRMED and CANCELLED of an order share a partition; lines by productId
+    public CompletableFuture<SendResult<String, Object>> send(OrderEvent event) {
+        String key = event.getEventType() == OrderEvent.EventType.ORDER_LINE
+                ? event.getProductId().toString()
+                : event.getOrderId().toString();
+        long start = System.nanoTime();
+        return sendMetrics.track(orderEventsTopic, start, kafkaTemplate.send(orderEventsTopic, key, event));
     }
 }
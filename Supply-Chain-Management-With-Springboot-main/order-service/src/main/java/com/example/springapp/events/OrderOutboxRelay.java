@@ -0,0 +1,154 @@
+package com.example.springapp.events;
+
+import com.example.springapp.models.OrderItem;
+import com.example.springapp.models.OrderOutboxEvent;
+import com.example.springapp.repositories.OrderItemRepository;
+import com.example.springapp.repositories.OrderOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains order_outbox into the order-events topic off the request path, oldest row first. A
+ * CREATED row is followed by the order's ORDER_LINE events, built from order_items with one
+ * query per batch. Rows are deleted only after Kafka acknowledged the whole batch, so a restart
+ * resumes with the first unacknowledged row. A batch cut short by a crash is sent again with the
+ * same event ids, which the consumers use to drop the repeats.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "order.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OrderOutboxRelay {
+
+    private final OrderOutboxRepository outboxRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final OrderEventPublisher orderEventPublisher;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final DistributionSummary batchSizeSummary;
+    private final Counter publishedCounter;
+    private final Counter failedBatchCounter;
+
+    public OrderOutboxRelay(OrderOutboxRepository outboxRepository, OrderItemRepository orderItemRepository,
+            OrderEventPublisher orderEventPublisher, MeterRegistry meterRegistry,
+            @Value("${order.outbox.batch-size:500}") int batchSize,
+            @Value("${order.outbox.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.outboxRepository = outboxRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.orderEventPublisher = orderEventPublisher;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+
+        Gauge.builder("order.outbox.lag", lagMillis, AtomicLong::get)
+                .description("Age in milliseconds of the oldest outbox row in the last relayed batch")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("order.outbox.batch.size")
+                .description("Order events relayed per batch")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder("order.outbox.published")
+                .description("Order events relayed to Kafka")
+                .register(meterRegistry);
+        this.failedBatchCounter = Counter.builder("order.outbox.failed.batches")
+                .description("Relay batches that were not acknowledged and will be retried")
+                .register(meterRegistry);
+    }
+
+    // READ COMMITTED, so the locking read takes no gap lock past the last row: under REPEATABLE READ
+    // it would hold up every order_outbox insert, and with it order placement, until Kafka answered
+    @Scheduled(fixedDelayString = "${order.outbox.poll-interval-ms:200}")
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public void relay() {
+        List<OrderOutboxEvent> batch = outboxRepository.lockNextBatch(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            lagMillis.set(0);
+            return;
+        }
+        lagMillis.set(Duration.between(batch.get(0).getCreatedAt(), LocalDateTime.now()).toMillis());
+
+        Map<Integer, List<OrderItem>> linesByOrder = lines(batch);
+
+        // Sent in id order; the idempotent producer keeps that order per partition across retries
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (OrderOutboxEvent row : batch) {
+            OrderEvent.EventType eventType = OrderEvent.EventType.valueOf(row.getEventType());
+            sends.add(orderEventPublisher.send(new OrderEvent(
+                    eventType,
+                    row.getOrderId(),
+                    null,
+                    row.getQuantity(),
+                    row.getTotalAmount(),
+                    row.getCreatedAt(),
+                    null,
+                    row.getEventId())));
+            if (eventType != OrderEvent.EventType.CREATED) {
+                continue;
+            }
+            for (OrderItem item : linesByOrder.getOrDefault(row.getOrderId().intValue(), List.of())) {
+                // Derived from the row's event id, so a re-sent line carries the id it had the first time
+                sends.add(orderEventPublisher.send(new OrderEvent(
+                        OrderEvent.EventType.ORDER_LINE,
+                        row.getOrderId(),
+                        item.getProductId(),
+                        item.getQuantity(),
+                        item.getTotalPrice(),
+                        row.getCreatedAt(),
+                        item.getUnitPrice(),
+                        row.getEventId() + "#" + item.getId())));
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            failedBatchCounter.increment();
+            log.error("Error relaying {} order events, will retry: {}", batch.size(), e.getMessage());
+            return;
+        }
+
+        outboxRepository.deleteAllInBatch(batch);
+        batchSizeSummary.record(sends.size());
+        publishedCounter.increment(sends.size());
+    }
+
+    // Items of the batch's CREATED orders by order id, in item id order; items outlive a deleted order
+    private Map<Integer, List<OrderItem>> lines(List<OrderOutboxEvent> batch) {
+        Set<Integer> createdOrderIds = new HashSet<>();
+        for (OrderOutboxEvent row : batch) {
+            if (OrderEvent.EventType.CREATED.name().equals(row.getEventType())) {
+                createdOrderIds.add(row.getOrderId().intValue());
+            }
+        }
+        Map<Integer, List<OrderItem>> linesByOrder = new HashMap<>();
+        if (createdOrderIds.isEmpty()) {
+            return linesByOrder;
+        }
+        for (OrderItem item : orderItemRepository.findLinesByOrderIdIn(createdOrderIds)) {
+            linesByOrder.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(item);
+        }
+        return linesByOrder;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.springapp.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "order_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderOutboxEvent {
+
+    // IDENTITY rather than a pooled sequence: relay order is id order, and a later event of an order
+    // is only written after the earlier one committed, so it always gets the higher id
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "event_id", nullable = false, length = 36)
+    private String eventId; // OrderEvent.eventId, "<eventId>#<item id>" for the lines of a CREATED row
+
+    // CREATED, CONFIRMED, CANCELLED; a CREATED row also stands for the order's ORDER_LINE events,
+    // which the relay builds from order_items so placing an order writes one outbox row
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "quantity")
+    private Integer quantity;
+
+    @Column(name = "total_amount")
+    private Double totalAmount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (eventId == null) {
+            eventId = UUID.randomUUID().toString();
+        }
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
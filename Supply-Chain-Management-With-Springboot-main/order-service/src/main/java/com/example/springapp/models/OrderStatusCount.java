@@ -0,0 +1,35 @@
+package com.example.springapp.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One slot of the number of orders in a status. Writers add to a random slot so they do not
+ * all queue on one row; the count for a status is the sum of its slots.
+ */
+@Entity
+@Table(name = "order_status_counts", uniqueConstraints = @UniqueConstraint(
+        name = "uk_order_status_counts", columnNames = { "status", "slot" }))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusCount {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    @Column(name = "slot", nullable = false)
+    private Integer slot;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+}
@@ -1,12 +1,24 @@
 package com.example.springapp.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.example.springapp.models.OrderItem;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     List<OrderItem> findByOrderId(Integer orderId);
+    List<OrderItem> findByOrderIdIn(Collection<Integer> orderIds);
     List<OrderItem> findByProductId(Long productId);
+
+    // Read-only: the outbox relay only turns these into events, so no snapshots are kept to dirty-check
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT i FROM OrderItem i WHERE i.orderId IN :orderIds AND i.productId IS NOT NULL ORDER BY i.id")
+    List<OrderItem> findLinesByOrderIdIn(@Param("orderIds") Collection<Integer> orderIds);
 }
@@ -0,0 +1,20 @@
+package com.example.springapp.repositories;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import com.example.springapp.models.OrderOutboxEvent;
+
+import java.util.List;
+
+public interface OrderOutboxRepository extends JpaRepository<OrderOutboxEvent, Long> {
+
+    // No SKIP LOCKED: a second relay waits for the first batch instead of sending the rows after it,
+    // which could put a later event of an order on Kafka ahead of an earlier one
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM OrderOutboxEvent e ORDER BY e.id")
+    List<OrderOutboxEvent> lockNextBatch(Pageable pageable);
+}
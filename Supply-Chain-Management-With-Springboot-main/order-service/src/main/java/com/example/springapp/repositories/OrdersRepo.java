@@ -1,11 +1,49 @@
 package com.example.springapp.repositories;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.springapp.models.Orders;
+import jakarta.persistence.LockModeType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 public interface OrdersRepo extends JpaRepository<Orders, Integer> {
-    Page<Orders> findByStatus(String status, Pageable pageable);
+    // A List rather than a Page: callers only want the rows, so no count query is issued
+    List<Orders> findByStatus(String status, Pageable pageable);
+
+    @Query("SELECT o FROM Orders o ORDER BY o.orderDate DESC, o.id DESC")
+    List<Orders> findLatest(Pageable pageable);
+
+    // Seek past the last (orderDate, id) the caller saw instead of skipping rows with OFFSET
+    @Query("SELECT o FROM Orders o " +
+            "WHERE o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Orders> findBefore(@Param("orderDate") LocalDateTime orderDate, @Param("id") int id, Pageable pageable);
+
+    @Query("SELECT o FROM Orders o WHERE o.status = :status ORDER BY o.orderDate DESC, o.id DESC")
+    List<Orders> findLatestByStatus(@Param("status") String status, Pageable pageable);
+
+    @Query("SELECT o FROM Orders o WHERE o.status = :status " +
+            "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Orders> findByStatusBefore(@Param("status") String status,
+            @Param("orderDate") LocalDateTime orderDate, @Param("id") int id, Pageable pageable);
+
+    // Row lock, so the status read is the one the caller replaces
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Orders o WHERE o.id = :id")
+    Optional<Orders> findByIdForUpdate(@Param("id") int id);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Orders o SET o.status = :to WHERE o.id = :id AND o.status = :from")
+    int updateStatus(@Param("id") int id, @Param("from") String from, @Param("to") String to);
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+package com.example.springapp.service;
+
+import com.example.springapp.dto.OrderSummary;
+import com.example.springapp.models.Orders;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Dashboard feed: orders per status and revenue per day, held in memory and served as one
+ * prebuilt snapshot, so polling the summary costs no database work. Status changes made by
+ * this instance are applied as their transactions commit. The whole view is rebuilt from the
+ * database at startup and every refresh interval, which also brings in orders written by other
+ * instances; between rebuilds it can lag them by up to that interval.
+ * <p>
+ * Revenue is the totalAmount of orders in Placed or a later status, by order date, kept for
+ * the last revenue-days days.
+ */
+@Service
+public class OrderDashboard {
+
+    private static final Set<String> REVENUE_STATUSES = Set.of("Placed", "Accepted", "Transferred", "Delivered");
+
+    // Range scan on idx_orders_order_date
+    private static final String REVENUE_SQL = "SELECT CAST(order_date AS DATE), SUM(total_amount) FROM orders "
+            + "WHERE order_date >= ? AND status IN ('Placed', 'Accepted', 'Transferred', 'Delivered') "
+            + "GROUP BY CAST(order_date AS DATE)";
+
+    private final OrderStatusCounts orderStatusCounts;
+    private final JdbcTemplate jdbcTemplate;
+    private final int revenueDays;
+
+    // Guarded by lock; the snapshot is rebuilt on the first read after a change
+    private final Object lock = new Object();
+    private final Map<String, Long> counts = new HashMap<>();
+    private final Map<LocalDate, Double> revenue = new HashMap<>();
+    private LocalDateTime refreshedAt;
+    private volatile OrderSummary snapshot;
+
+    public OrderDashboard(OrderStatusCounts orderStatusCounts, JdbcTemplate jdbcTemplate,
+            @Value("${order.dashboard.revenue-days:30}") int revenueDays) {
+        this.orderStatusCounts = orderStatusCounts;
+        this.jdbcTemplate = jdbcTemplate;
+        this.revenueDays = Math.max(revenueDays, 1);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${order.dashboard.refresh-interval-ms:60000}",
+            initialDelayString = "${order.dashboard.refresh-interval-ms:60000}")
+    public void refresh() {
+        Map<String, Long> freshCounts = orderStatusCounts.counts();
+        Map<LocalDate, Double> freshRevenue = new HashMap<>();
+        jdbcTemplate.query(REVENUE_SQL, rs -> {
+            freshRevenue.put(rs.getDate(1).toLocalDate(), rs.getDouble(2));
+        }, Timestamp.valueOf(firstDay().atStartOfDay()));
+        synchronized (lock) {
+            counts.clear();
+            counts.putAll(freshCounts);
+            revenue.clear();
+            revenue.putAll(freshRevenue);
+            refreshedAt = LocalDateTime.now();
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Moves the order from one status to another once the surrounding transaction commits
+     * (immediately if there is none). from is null for a new order, to is null for a deleted one.
+     */
+    public void statusChanged(Orders order, String from, String to) {
+        if (Objects.equals(from, to)) {
+            return;
+        }
+        boolean wasRevenue = from != null && REVENUE_STATUSES.contains(from);
+        boolean isRevenue = to != null && REVENUE_STATUSES.contains(to);
+        double amount = order.getTotalAmount() != null ? order.getTotalAmount() : 0.0;
+        double revenueDelta = wasRevenue == isRevenue ? 0.0 : isRevenue ? amount : -amount;
+        LocalDate day = order.getOrderDate() != null ? order.getOrderDate().toLocalDate() : null;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(from, to, day, revenueDelta);
+                }
+            });
+        } else {
+            apply(from, to, day, revenueDelta);
+        }
+    }
+
+    public OrderSummary summary() {
+        OrderSummary current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (lock) {
+            if (snapshot == null) {
+                snapshot = build();
+            }
+            return snapshot;
+        }
+    }
+
+    private void apply(String from, String to, LocalDate day, double revenueDelta) {
+        synchronized (lock) {
+            if (from != null) {
+                counts.merge(from, -1L, Long::sum);
+            }
+            if (to != null) {
+                counts.merge(to, 1L, Long::sum);
+            }
+            if (day != null && revenueDelta != 0.0 && !day.isBefore(firstDay())) {
+                revenue.merge(day, revenueDelta, Double::sum);
+            }
+            snapshot = null;
+        }
+    }
+
+    // Called with lock held
+    private OrderSummary build() {
+        LocalDate firstDay = firstDay();
+        revenue.keySet().removeIf(day -> day.isBefore(firstDay));
+
+        Map<String, Long> byStatus = new TreeMap<>();
+        long total = 0;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            if (entry.getValue() != 0) {
+                byStatus.put(entry.getKey(), entry.getValue());
+                total += entry.getValue();
+            }
+        }
+        Map<String, Double> byDay = new TreeMap<>();
+        for (Map.Entry<LocalDate, Double> entry : revenue.entrySet()) {
+            byDay.put(entry.getKey().toString(), entry.getValue());
+        }
+        return new OrderSummary(Collections.unmodifiableMap(byStatus), total, Collections.unmodifiableMap(byDay),
+                revenue.getOrDefault(LocalDate.now(), 0.0), refreshedAt);
+    }
+
+    private LocalDate firstDay() {
+        return LocalDate.now().minusDays(revenueDays - 1L);
+    }
+}
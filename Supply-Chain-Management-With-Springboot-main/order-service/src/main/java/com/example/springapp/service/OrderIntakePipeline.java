@@ -0,0 +1,153 @@
+package com.example.springapp.service;
+
+import com.example.springapp.config.OutcomeTimers;
+import com.example.springapp.models.Orders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous order intake. The request thread only stores the order as Pending; a fixed pool
+ * of workers then reserves stock and confirms it (see {@link OrdersService#processPendingOrder}).
+ * At most max-in-flight orders are accepted but not yet processed, and submissions beyond that
+ * are refused rather than queued without bound. Pending orders left behind by an unreachable
+ * inventory service or a restart are picked up again by a periodic sweep.
+ */
+@Service
+@Slf4j
+public class OrderIntakePipeline {
+
+    private final OrdersService ordersService;
+    private final int maxInFlight;
+    private final Semaphore capacity;
+    private final ThreadPoolExecutor workers;
+    // Orders queued or being processed, so the sweep never hands the same order out twice
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+    private final Counter rejectedCounter;
+    private final OutcomeTimers processTimers;
+
+    public OrderIntakePipeline(OrdersService ordersService, MeterRegistry meterRegistry,
+            @Value("${order.intake.workers:8}") int workerThreads,
+            @Value("${order.intake.max-in-flight:1000}") int maxInFlight) {
+        this.ordersService = ordersService;
+        this.maxInFlight = maxInFlight;
+        this.capacity = new Semaphore(maxInFlight);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "order-intake-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("order.intake.queue.depth", workers, executor -> executor.getQueue().size())
+                .description("Accepted orders waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("order.intake.in.flight", this, OrderIntakePipeline::inFlight)
+                .description("Accepted orders not yet processed, queued or running")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("order.intake.rejected")
+                .description("Orders refused because the intake pipeline was full")
+                .register(meterRegistry);
+        this.processTimers = new OutcomeTimers(meterRegistry, "order.intake.process",
+                "Time for a worker to reserve stock for and confirm one pending order");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Stores the order as Pending and queues it for processing. Throws
+     * RejectedExecutionException, before anything is stored, when max-in-flight orders are
+     * already waiting.
+     */
+    public Orders submit(Orders order) {
+        if (!capacity.tryAcquire()) {
+            rejectedCounter.increment();
+            throw new RejectedExecutionException("Order intake is at capacity (" + maxInFlight + " orders in flight)");
+        }
+        Orders saved;
+        try {
+            saved = ordersService.savePendingOrder(order);
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+        enqueue(saved.getId());
+        return saved;
+    }
+
+    public int inFlight() {
+        return maxInFlight - capacity.availablePermits();
+    }
+
+    @Scheduled(fixedDelayString = "${order.intake.sweep-interval-ms:30000}",
+            initialDelayString = "${order.intake.sweep-interval-ms:30000}")
+    public void requeuePending() {
+        int room = capacity.availablePermits();
+        if (room == 0) {
+            return;
+        }
+        List<Integer> pending = ordersService.getPendingOrderIds(room);
+        int requeued = 0;
+        for (Integer orderId : pending) {
+            if (inFlight.contains(orderId)) {
+                continue;
+            }
+            if (!capacity.tryAcquire()) {
+                break;
+            }
+            enqueue(orderId);
+            requeued++;
+        }
+        if (requeued > 0) {
+            log.info("Requeued {} pending orders", requeued);
+        }
+    }
+
+    // The caller holds one capacity permit, which is handed to the worker or given back here
+    private void enqueue(int orderId) {
+        if (!inFlight.add(orderId)) {
+            capacity.release();
+            return;
+        }
+        try {
+            workers.execute(() -> process(orderId));
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the sweep picks the order up after the restart
+            inFlight.remove(orderId);
+            capacity.release();
+        }
+    }
+
+    private void process(int orderId) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            outcome = ordersService.processPendingOrder(orderId);
+        } catch (RuntimeException e) {
+            log.error("Error processing pending order {}: {}", orderId, e.getMessage(), e);
+        } finally {
+            inFlight.remove(orderId);
+            capacity.release();
+            processTimers.record(outcome, start);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.springapp.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exact number of orders per status, kept in order_status_counts so listings can report totals
+ * without a COUNT(*) over orders. A change is written just before the surrounding transaction
+ * commits, so it commits or rolls back with the order write, and the slot row it locks is held
+ * only for the commit rather than for the whole transaction.
+ * <p>
+ * One change writes all its statuses to the same slot, in status name order, so two
+ * transactions moving orders between the same statuses cannot deadlock.
+ */
+@Service
+@Slf4j
+public class OrderStatusCounts {
+
+    private static final String ADD_SQL = "UPDATE order_status_counts SET order_count = order_count + ? "
+            + "WHERE status = ? AND slot = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO order_status_counts (status, slot, order_count) "
+            + "VALUES (?, ?, ?)";
+
+    private static final String COUNT_SQL = "SELECT COALESCE(SUM(order_count), 0) FROM order_status_counts "
+            + "WHERE status = ?";
+
+    private static final String COUNTS_SQL = "SELECT status, SUM(order_count) FROM order_status_counts "
+            + "GROUP BY status";
+
+    private static final String SEED_SQL = "INSERT INTO order_status_counts (status, slot, order_count) "
+            + "SELECT status, 0, COUNT(*) FROM orders WHERE status IS NOT NULL GROUP BY status";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int slots;
+
+    public OrderStatusCounts(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            @Value("${order.status-counts.slots:16}") int slots) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.slots = Math.max(slots, 1);
+    }
+
+    /**
+     * Counts the orders already stored the first time the service runs against a database. The
+     * transaction manager needs the EntityManagerFactory, so the table exists by now. Should two
+     * instances seed at once, the slot-0 unique key lets only one of them through.
+     */
+    @PostConstruct
+    public void seedIfEmpty() {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_status_counts", Long.class);
+                if (rows != null && rows == 0) {
+                    int statuses = jdbcTemplate.update(SEED_SQL);
+                    log.info("Seeded order counts for {} statuses", statuses);
+                }
+            });
+        } catch (DuplicateKeyException e) {
+            log.info("Order counts were seeded by another instance");
+        }
+    }
+
+    /**
+     * Moves one order from one status to another when the surrounding transaction commits. from
+     * is null for a new order, to is null for a deleted one.
+     */
+    public void move(String from, String to) {
+        if (Objects.equals(from, to)) {
+            return;
+        }
+        SortedMap<String, Integer> deltas = new TreeMap<>();
+        if (from != null) {
+            deltas.put(from, -1);
+        }
+        if (to != null) {
+            deltas.put(to, 1);
+        }
+        apply(deltas);
+    }
+
+    public long count(String status) {
+        Long count = jdbcTemplate.queryForObject(COUNT_SQL, Long.class, status);
+        return count != null ? count : 0L;
+    }
+
+    /** Orders per status, statuses in name order. */
+    public Map<String, Long> counts() {
+        Map<String, Long> counts = new TreeMap<>();
+        jdbcTemplate.query(COUNTS_SQL, rs -> {
+            counts.put(rs.getString(1), rs.getLong(2));
+        });
+        return counts;
+    }
+
+    public long total() {
+        long total = 0;
+        for (long count : counts().values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    private void apply(SortedMap<String, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    write(deltas);
+                }
+            });
+        } else {
+            transactionTemplate.executeWithoutResult(tx -> write(deltas));
+        }
+    }
+
+    private void write(SortedMap<String, Integer> deltas) {
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        for (Map.Entry<String, Integer> entry : deltas.entrySet()) {
+            if (jdbcTemplate.update(ADD_SQL, entry.getValue(), entry.getKey(), slot) == 0) {
+                insertOrAdd(entry.getKey(), slot, entry.getValue());
+            }
+        }
+    }
+
+    // Another writer may create the slot row between our UPDATE and INSERT; add to it then
+    private void insertOrAdd(String status, int slot, int delta) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, status, slot, delta);
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.update(ADD_SQL, delta, status, slot);
+        }
+    }
+}
@@ -1,23 +1,51 @@
 package com.example.springapp.service;
 
+import com.example.springapp.config.OutcomeTimers;
+import com.example.springapp.dto.BatchStockRequest;
+import com.example.springapp.dto.BatchStockResponse;
+import com.example.springapp.dto.KeysetPage;
+import com.example.springapp.dto.OrderSummary;
+import com.example.springapp.dto.ReservationRequest;
+import com.example.springapp.dto.ReservationResponse;
+import com.example.springapp.dto.StockLineRequest;
 import com.example.springapp.events.OrderEvent;
-import com.example.springapp.events.OrderEventPublisher;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import jakarta.annotation.PostConstruct;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Page;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.springapp.models.OrderItem;
+import com.example.springapp.models.OrderOutboxEvent;
 import com.example.springapp.models.Orders;
 import com.example.springapp.repositories.OrdersRepo;
 
 @Service
 public class OrdersService {
 
+    // Order ids per IN (...) when loading the items of a page of orders
+    private static final int ITEM_LOAD_CHUNK = 1000;
+
+    private static final int MAX_KEYSET_PAGE_SIZE = 1000;
+
+    // Accepting an order commits its stock, and these follow acceptance
+    private static final Set<String> STOCK_COMMITTED_STATUSES = Set.of("Accepted", "Transferred", "Delivered");
+
     @Autowired
     OrdersRepo ordersRepo;
 
@@ -28,128 +56,475 @@ public class OrdersService {
     com.example.springapp.client.InventoryClient inventoryClient;
 
     @Autowired
-    OrderEventPublisher orderEventPublisher;
+    com.example.springapp.repositories.OrderOutboxRepository orderOutboxRepository;
 
-    @org.springframework.transaction.annotation.Transactional
+    @Autowired
+    OrderStatusCounts orderStatusCounts;
+
+    @Autowired
+    OrderDashboard orderDashboard;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${order.reservation.ttl-seconds:3600}")
+    long reservationTtlSeconds;
+
+    @Value("${order.inventory.max-attempts:3}")
+    int inventoryMaxAttempts;
+
+    @Value("${order.inventory.retry-backoff-ms:100}")
+    long inventoryRetryBackoffMs;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private OutcomeTimers placeOrderTimers;
+
+    private OutcomeTimers dbPhaseTimers;
+
+    private OutcomeTimers inventoryPhaseTimers;
+
+    private OutcomeTimers outboxPhaseTimers;
+
+    @PostConstruct
+    void registerMetrics() {
+        placeOrderTimers = new OutcomeTimers(meterRegistry, "order.place",
+                "Time to place one order");
+        dbPhaseTimers = new OutcomeTimers(meterRegistry, "order.place.phase",
+                "Time spent in one phase of placing an order", "phase", "db");
+        inventoryPhaseTimers = new OutcomeTimers(meterRegistry, "order.place.phase",
+                "Time spent in one phase of placing an order", "phase", "inventory");
+        outboxPhaseTimers = new OutcomeTimers(meterRegistry, "order.place.phase",
+                "Time spent in one phase of placing an order", "phase", "outbox");
+    }
+
+    /**
+     * Stores the order as Pending, reserves its stock, then marks it Placed, or Rejected when
+     * inventory refuses the reservation, the same as {@link #processPendingOrder} does for
+     * asynchronous intake. No transaction is open during the inventory call, and a save that
+     * fails never leaves a hold behind. When inventory cannot be reached the order stays Pending
+     * and the intake sweep retries it, as it does if this request dies midway.
+     */
     public String placeOrder(Orders order) {
-        order.setStatus("Placed");
-        Orders savedOrder = ordersRepo.save(order);
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            Orders savedOrder = new TransactionTemplate(transactionManager).execute(tx -> saveOrder(order, "Pending"));
+
+            // Hold stock for the whole basket; it is committed when the order is accepted
+            // and released again if the order is cancelled or the hold expires
+            List<StockLineRequest> lines = stockLines(order.getItems());
+            String reservation = lines.isEmpty() ? "success" : reserveStock(savedOrder.getId(), lines);
+            if ("error".equals(reservation)) {
+                outcome = "pending";
+                return "Order " + savedOrder.getId() + " is Pending until its stock can be reserved";
+            }
+
+            String status = "success".equals(reservation) ? "Placed" : "Rejected";
+            if (!confirmPending(savedOrder, status)) {
+                releaseIfCancelled(savedOrder.getId());
+                String current = getOrderStatus(savedOrder.getId());
+                return "Order " + savedOrder.getId() + " is " + (current != null ? current : "cancelled");
+            }
+            if ("Rejected".equals(status)) {
+                outcome = "rejected";
+                return "Order " + savedOrder.getId() + " rejected: stock could not be reserved";
+            }
+            outcome = "success";
+            return "Order placed with order id " + savedOrder.getId();
+        } finally {
+            placeOrderTimers.record(outcome, start);
+        }
+    }
+
+    /**
+     * First stage of asynchronous intake: stores the order and its items as Pending. Stock is
+     * reserved and the order confirmed later by {@link #processPendingOrder}.
+     */
+    @org.springframework.transaction.annotation.Transactional
+    public Orders savePendingOrder(Orders order) {
+        return saveOrder(order, "Pending");
+    }
+
+    /**
+     * Second stage of asynchronous intake: reserves stock for a Pending order, then confirms it as
+     * Placed and records CREATED, or marks it Rejected when inventory refuses the reservation.
+     * When inventory cannot be reached the order stays Pending and the outcome is "retry".
+     */
+    public String processPendingOrder(int orderId) {
+        Orders order = ordersRepo.findById(orderId).orElse(null);
+        if (order == null || !"Pending".equals(order.getStatus())) {
+            return "skipped";
+        }
+        order.setItems(orderItemRepo.findByOrderId(orderId));
+
+        List<StockLineRequest> lines = stockLines(order.getItems());
+        String reservation = lines.isEmpty() ? "success" : reserveStock(orderId, lines);
+        if ("error".equals(reservation)) {
+            return "retry";
+        }
+        String status = "success".equals(reservation) ? "Placed" : "Rejected";
+        if (!confirmPending(order, status)) {
+            releaseIfCancelled(orderId);
+            return "skipped";
+        }
+        return "Rejected".equals(status) ? "rejected" : "placed";
+    }
 
-        if (order.getItems() != null && !order.getItems().isEmpty()) {
-            for (com.example.springapp.models.OrderItem item : order.getItems()) {
-                item.setOrderId(savedOrder.getId());
-                orderItemRepo.save(item);
+    // Conditional, so an order cancelled or already confirmed meanwhile is left alone; CREATED goes with Placed
+    private boolean confirmPending(Orders order, String status) {
+        Boolean moved = new TransactionTemplate(transactionManager).execute(tx -> {
+            if (ordersRepo.updateStatus(order.getId(), "Pending", status) == 0) {
+                return false;
+            }
+            statusChanged(order, "Pending", status);
+            if ("Placed".equals(status)) {
+                recordCreated(order);
+            }
+            return true;
+        });
+        if (Boolean.TRUE.equals(moved)) {
+            order.setStatus(status);
+            return true;
+        }
+        return false;
+    }
 
-                // Reduce inventory
+    // A hold taken after the order's CANCELLED event was handled would otherwise last until it expires
+    private void releaseIfCancelled(int orderId) {
+        if (ordersRepo.existsById(orderId)) {
+            return;
+        }
+        try {
+            withRetries(() -> inventoryClient.releaseReservation(reservationReference(orderId)));
+        } catch (Exception e) {
+            System.err.println("Failed to release stock of cancelled order " + orderId + ": " + e.getMessage());
+        }
+    }
+
+    // Oldest first, so orders that keep failing do not starve newer ones past the limit
+    public List<Integer> getPendingOrderIds(int limit) {
+        List<Integer> ids = new ArrayList<>();
+        for (Orders order : ordersRepo.findByStatus("Pending", PageRequest.of(0, limit, Sort.by("id")))) {
+            ids.add(order.getId());
+        }
+        return ids;
+    }
+
+    public String getOrderStatus(int id) {
+        return ordersRepo.findById(id).map(Orders::getStatus).orElse(null);
+    }
+
+    // Inserts run now; the commit itself happens when the caller's transaction ends and is not part of this phase
+    private Orders saveOrder(Orders order, String status) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            order.setStatus(status);
+            Orders savedOrder = ordersRepo.save(order);
+            statusChanged(savedOrder, null, status);
+            if (order.getItems() != null) {
+                for (OrderItem item : order.getItems()) {
+                    item.setOrderId(savedOrder.getId());
+                }
+                // One batched INSERT for all lines, ids come from the pooled sequence
+                orderItemRepo.saveAll(order.getItems());
+            }
+            outcome = "success";
+            return savedOrder;
+        } finally {
+            dbPhaseTimers.record(outcome, start);
+        }
+    }
+
+    // from is null for a new order and to for a deleted one; both apply with the caller's transaction
+    private void statusChanged(Orders order, String from, String to) {
+        orderStatusCounts.move(from, to);
+        orderDashboard.statusChanged(order, from, to);
+    }
+
+    private static List<StockLineRequest> stockLines(List<OrderItem> items) {
+        List<StockLineRequest> lines = new ArrayList<>();
+        if (items != null) {
+            for (OrderItem item : items) {
                 if (item.getProductId() != null && item.getQuantity() != null) {
-                    try {
-                        java.util.Map<String, Object> request = new java.util.HashMap<>();
-                        request.put("quantity", item.getQuantity());
-                        request.put("performedBy", "Order #" + savedOrder.getId());
-                        inventoryClient.reduceStock(item.getProductId(), request);
-                    } catch (Exception e) {
-                        System.err.println("Failed to reduce stock: " + e.getMessage());
-                    }
+                    lines.add(new StockLineRequest(item.getProductId(), item.getQuantity()));
                 }
             }
         }
+        return lines;
+    }
+
+    // Returns success, rejected (inventory refused the hold) or error (inventory unreachable)
+    private String reserveStock(int orderId, List<StockLineRequest> lines) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            ReservationRequest request = new ReservationRequest(reservationReference(orderId),
+                    "Order #" + orderId, reservationTtlSeconds, lines);
+            // The reference makes a repeated reserve a no-op, so timeouts can be retried
+            ReservationResponse response = withRetries(() -> inventoryClient.reserveStock(request));
+            if (response == null || !response.isSuccess()) {
+                outcome = "rejected";
+                System.err.println("Failed to reserve stock: "
+                        + (response != null ? response.getMessage() : "no response"));
+                return outcome;
+            }
+            outcome = "success";
+            return outcome;
+        } catch (Exception e) {
+            System.err.println("Failed to reserve stock: " + e.getMessage());
+            return outcome;
+        } finally {
+            inventoryPhaseTimers.record(outcome, start);
+        }
+    }
 
-        // Publish order created event
-        OrderEvent event = new OrderEvent(
-                OrderEvent.EventType.CREATED,
-                (long) savedOrder.getId(),
-                null, // will be set per item if needed
-                savedOrder.getItems() != null ? savedOrder.getItems().size() : 0,
-                savedOrder.getTotalAmount(),
-                LocalDateTime.now());
-        orderEventPublisher.publishOrderEvent(event);
+    // Outbox rows commit with the order change; OrderOutboxRelay publishes them to Kafka
+    private void recordOrderEvent(Orders order, OrderEvent.EventType eventType) {
+        orderOutboxRepository.save(new OrderOutboxEvent(null, null, eventType.name(), (long) order.getId(),
+                order.getItems() != null ? order.getItems().size() : 0, order.getTotalAmount(), null));
+    }
 
-        return "Order placed with order id " + savedOrder.getId();
+    private void recordCreated(Orders order) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            recordOrderEvent(order, OrderEvent.EventType.CREATED);
+            outcome = "success";
+        } finally {
+            outboxPhaseTimers.record(outcome, start);
+        }
     }
 
+    /**
+     * Accepts a Placed order. Stock is committed first and the order only becomes Accepted once
+     * inventory confirmed it, so a refused commit leaves the order Placed and its hold in place.
+     * The commit is keyed by order, so retrying an accept never moves stock twice. A Pending order
+     * is refused, since its reservation could still land after the commit.
+     */
     public String acceptOrder(int id) {
-        Orders order = ordersRepo.findById(id).orElse(null);
-        if (order == null) {
+        String status = getOrderStatus(id);
+        if (status == null) {
             return "Order not found";
         }
-        order.setStatus("Accepted");
-        ordersRepo.saveAndFlush(order);
-
-        // Publish order confirmed event
-        OrderEvent event = new OrderEvent(
-                OrderEvent.EventType.CONFIRMED,
-                (long) order.getId(),
-                null,
-                order.getItems() != null ? order.getItems().size() : 0,
-                order.getTotalAmount(),
-                LocalDateTime.now());
-        orderEventPublisher.publishOrderEvent(event);
+        if (!"Placed".equals(status) && !"Accepted".equals(status)) {
+            throw new IllegalStateException("Order " + id + " is " + status + " and cannot be accepted");
+        }
+        commitReservation(id);
 
+        Orders order = new TransactionTemplate(transactionManager).execute(tx -> {
+            Orders locked = ordersRepo.findByIdForUpdate(id).orElse(null);
+            if (locked != null && "Placed".equals(locked.getStatus())) {
+                statusChanged(locked, "Placed", "Accepted");
+                locked.setStatus("Accepted");
+                recordOrderEvent(locked, OrderEvent.EventType.CONFIRMED);
+            }
+            return locked;
+        });
+        if (order == null || !"Accepted".equals(order.getStatus())) {
+            throw new IllegalStateException("Stock for order " + id + " was committed but the order is "
+                    + (order != null ? order.getStatus() : "cancelled"));
+        }
         return "Order " + id + " Accepted";
     }
 
+    // The order lines ride along so inventory can still commit if the hold has already expired
+    private void commitReservation(int orderId) {
+        List<StockLineRequest> lines = stockLines(orderItemRepo.findByOrderId(orderId));
+        if (lines.isEmpty()) {
+            return;
+        }
+        String reference = reservationReference(orderId);
+        BatchStockRequest fallback = new BatchStockRequest("Order #" + orderId, lines);
+        BatchStockResponse response = withRetries(
+                () -> inventoryClient.commitReservation(reference, fallback, reference + "-commit"));
+        if (response == null || !response.isSuccess()) {
+            throw new IllegalStateException("Stock for order " + orderId + " was not committed: "
+                    + (response != null ? response.getMessage() : "no response"));
+        }
+    }
+
+    private static String reservationReference(int orderId) {
+        return "order-" + orderId;
+    }
+
+    // Only for calls inventory deduplicates (reservation reference, Idempotency-Key)
+    private <T> T withRetries(Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                if (attempt >= inventoryMaxAttempts) {
+                    throw e;
+                }
+                System.err.println("Inventory call failed (attempt " + attempt + "), retrying: " + e.getMessage());
+                try {
+                    Thread.sleep(inventoryRetryBackoffMs * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private Orders changeStatus(int id, String status) {
+        return changeStatus(id, status, order -> { });
+    }
+
+    /**
+     * Sets the order's status, plus any other change, under a row lock and moves the order
+     * between the per-status counts in the same transaction. Null when the order does not exist.
+     */
+    private Orders changeStatus(int id, String status, Consumer<Orders> change) {
+        return new TransactionTemplate(transactionManager).execute(tx -> {
+            Orders order = ordersRepo.findByIdForUpdate(id).orElse(null);
+            if (order == null) {
+                return null;
+            }
+            statusChanged(order, order.getStatus(), status);
+            order.setStatus(status);
+            change.accept(order);
+            return order;
+        });
+    }
+
     public String transferOrder(int id, String deliveryBoyId) {
-        Orders order = ordersRepo.findById(id).orElse(null);
+        Orders order = changeStatus(id, "Transferred", o -> o.setDeliveryboyid(deliveryBoyId));
         if (order == null) {
             return "Order not found";
         }
-        order.setStatus("Transferred");
-        order.setDeliveryboyid(deliveryBoyId);
-        ordersRepo.saveAndFlush(order);
         return "Order " + id + " transfered";
     }
 
     public String deliveredOrder(int id) {
-        Orders order = ordersRepo.findById(id).orElse(null);
+        Orders order = changeStatus(id, "Delivered");
         if (order == null) {
             return "Order not found";
         }
-        order.setStatus("Delivered");
-        ordersRepo.saveAndFlush(order);
         return "Order " + id + " delivered";
     }
 
+    /**
+     * Deletes an order and records CANCELLED, which releases its hold. An order whose stock was
+     * committed is refused: CANCELLED does not give committed stock back.
+     */
     public String deleteOrder(int id) {
-        Orders order = ordersRepo.findById(id).orElse(null);
-        if (order == null) {
-            return "Order not found";
-        }
-
         try {
-            ordersRepo.deleteById(id);
-
-            // Publish order cancelled event
-            OrderEvent event = new OrderEvent(
-                    OrderEvent.EventType.CANCELLED,
-                    (long) id,
-                    null,
-                    order.getItems() != null ? order.getItems().size() : 0,
-                    order.getTotalAmount(),
-                    LocalDateTime.now());
-            orderEventPublisher.publishOrderEvent(event);
+            Orders order = new TransactionTemplate(transactionManager).execute(tx -> {
+                Orders locked = ordersRepo.findByIdForUpdate(id).orElse(null);
+                if (locked != null) {
+                    if (STOCK_COMMITTED_STATUSES.contains(locked.getStatus())) {
+                        throw new IllegalStateException("Order " + id + " is " + locked.getStatus()
+                                + " and its stock was committed, so it cannot be deleted");
+                    }
+                    ordersRepo.delete(locked);
+                    statusChanged(locked, locked.getStatus(), null);
+                    recordOrderEvent(locked, OrderEvent.EventType.CANCELLED);
+                }
+                return locked;
+            });
+            if (order == null) {
+                return "Order not found";
+            }
+        } catch (IllegalStateException e) {
+            throw e;
         } catch (Exception e) {
             return "Order not found";
         }
         return "Order " + id + " deleted";
     }
 
-    public Page<Orders> getAllOrders(int pageNumber, int pageSize) {
+    public Page<Orders> getAllOrders(int pageNumber, int pageSize, boolean withItems) {
         Pageable paging = PageRequest.of(pageNumber, pageSize);
-        return ordersRepo.findAll(paging);
+        Page<Orders> page = ordersRepo.findAll(paging);
+        if (withItems) {
+            loadItems(page.getContent());
+        }
+        return page;
     }
 
-    public Orders getOrderById(int id) {
+    public Orders getOrderById(int id, boolean withItems) {
         Orders order = ordersRepo.findById(id).orElse(null);
         if (order == null) {
             order = new Orders();
             order.setId(-1);
             order.setStatus("Order not found");
+        } else if (withItems) {
+            order.setItems(orderItemRepo.findByOrderId(id));
         }
         return order;
     }
 
-    public List<Orders> getOrderByStatus(String status, int pageNumber, int pageSize) {
+    public List<Orders> getOrderByStatus(String status, int pageNumber, int pageSize, boolean withItems) {
         Pageable paging = PageRequest.of(pageNumber, pageSize);
-        return ordersRepo.findByStatus(status, paging).getContent();
+        List<Orders> orders = ordersRepo.findByStatus(status, paging);
+        if (withItems) {
+            loadItems(orders);
+        }
+        return orders;
+    }
+
+    /**
+     * One page of orders, newest first, optionally only those in one status. The page seeks past
+     * the cursor's (orderDate, id) through idx_orders_order_date or idx_orders_status_order_date,
+     * so deep pages cost the same as the first, and the total comes from the maintained counts.
+     */
+    public KeysetPage<Orders> getOrdersBefore(String status, String cursor, int size, boolean withItems) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_KEYSET_PAGE_SIZE);
+        Pageable limit = PageRequest.of(0, pageSize);
+        List<Orders> orders;
+        if (cursor == null) {
+            orders = status == null ? ordersRepo.findLatest(limit) : ordersRepo.findLatestByStatus(status, limit);
+        } else {
+            PageCursors.DateAndId before = PageCursors.decodeDateAndId(cursor);
+            orders = status == null ? ordersRepo.findBefore(before.date(), before.id(), limit)
+                    : ordersRepo.findByStatusBefore(status, before.date(), before.id(), limit);
+        }
+        if (withItems) {
+            loadItems(orders);
+        }
+        String nextCursor = null;
+        if (orders.size() == pageSize) {
+            Orders last = orders.get(orders.size() - 1);
+            nextCursor = PageCursors.encodeDateAndId(last.getOrderDate(), last.getId());
+        }
+        long total = status == null ? orderStatusCounts.total() : orderStatusCounts.count(status);
+        return new KeysetPage<>(orders, nextCursor, total);
+    }
+
+    public Map<String, Long> getOrderCounts() {
+        return orderStatusCounts.counts();
+    }
+
+    public OrderSummary getOrderSummary() {
+        return orderDashboard.summary();
+    }
+
+    /**
+     * Fills in the items of a whole page of orders with one IN query (per ITEM_LOAD_CHUNK orders)
+     * instead of one findByOrderId per order. Orders without lines get an empty list.
+     */
+    private void loadItems(List<Orders> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Int2ObjectOpenHashMap<List<OrderItem>> itemsByOrder = new Int2ObjectOpenHashMap<>(orders.size());
+        List<Integer> orderIds = new ArrayList<>(orders.size());
+        for (Orders order : orders) {
+            itemsByOrder.put(order.getId(), new ArrayList<>());
+            orderIds.add(order.getId());
+        }
+        for (int from = 0; from < orderIds.size(); from += ITEM_LOAD_CHUNK) {
+            List<Integer> chunk = orderIds.subList(from, Math.min(from + ITEM_LOAD_CHUNK, orderIds.size()));
+            for (OrderItem item : orderItemRepo.findByOrderIdIn(chunk)) {
+                itemsByOrder.get(item.getOrderId().intValue()).add(item);
+            }
+        }
+        for (Orders order : orders) {
+            order.setItems(itemsByOrder.get(order.getId()));
+        }
     }
-}
\ No newline at end of file
+}
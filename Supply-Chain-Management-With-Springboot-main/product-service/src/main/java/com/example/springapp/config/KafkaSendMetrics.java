@@ -0,0 +1,34 @@
+package com.example.springapp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-topic ack latency of Kafka sends, kafka.producer.ack{topic, outcome=acked|failed}: the
+ * time from send() to the broker's acknowledgement or the final failure, so the failed count is
+ * the number of records the producer gave up on. Producer client metrics (batch size,
+ * compression rate, record-send-rate) are bound in {@link KafkaProducerConfig}.
+ */
+@Component
+public class KafkaSendMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, OutcomeTimers> timers = new ConcurrentHashMap<>();
+
+    public KafkaSendMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records the outcome of send when it completes. startNanos is System.nanoTime() just before
+     * the send; the returned future completes after the outcome is recorded.
+     */
+    public <T> CompletableFuture<T> track(String topic, long startNanos, CompletableFuture<T> send) {
+        OutcomeTimers topicTimers = timers.computeIfAbsent(topic, t -> new OutcomeTimers(meterRegistry,
+                "kafka.producer.ack", "Time from send to broker acknowledgement", "topic", t));
+        return send.whenComplete((result, error) -> topicTimers.record(error == null ? "acked" : "failed", startNanos));
+    }
+}
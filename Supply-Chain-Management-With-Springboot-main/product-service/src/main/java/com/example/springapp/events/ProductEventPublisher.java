@@ -1,5 +1,6 @@
 package com.example.springapp.events;
 
+import com.example.springapp.config.KafkaSendMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -10,19 +11,31 @@ import org.springframework.stereotype.Service;
 public class ProductEventPublisher {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaSendMetrics sendMetrics;
 
     @Value("${kafka.topic.product-events}")
     private String productEventsTopic;
 
-    public ProductEventPublisher(KafkaTemplate<String, Object> kafkaTemplate) {
+    public ProductEventPublisher(KafkaTemplate<String, Object> kafkaTemplate, KafkaSendMetrics sendMetrics) {
         this.kafkaTemplate = kafkaTemplate;
+        this.sendMetrics = sendMetrics;
     }
 
     public void publishProductEvent(ProductEvent event) {
         try {
             log.info("Publishing product event: {} for product ID: {}", event.getEventType(), event.getProductId());
-            kafkaTemplate.send(productEventsTopic, event.getProductId().toString(), event);
-            log.info("Product event published successfully");
+            long start = System.nanoTime();
+            sendMetrics.track(productEventsTopic, start,
+                    kafkaTemplate.send(productEventsTopic, event.getProductId().toString(), event))
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            log.error("Product event {} for product ID {} was not delivered: {}", event.getEventType(),
+                                    event.getProductId(), error.getMessage());
+                        } else {
+                            log.debug("Product event {} for product ID {} acknowledged at {}", event.getEventType(),
+                                    event.getProductId(), result.getRecordMetadata());
+                        }
+                    });
         } catch (Exception e) {
             log.error("Error publishing product event: {}", e.getMessage(), e);
         }
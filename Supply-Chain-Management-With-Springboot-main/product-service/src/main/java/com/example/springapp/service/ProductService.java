@@ -1,14 +1,19 @@
 package com.example.springapp.service;
 
+import com.example.springapp.config.OutcomeTimers;
 import com.example.springapp.events.ProductEvent;
 import com.example.springapp.events.ProductEventPublisher;
 import com.example.springapp.models.Product;
 import com.example.springapp.repositories.ProductRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
@@ -28,6 +33,24 @@ public class ProductService {
     @Autowired
     ProductEventPublisher productEventPublisher;
 
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private OutcomeTimers cachedLookupTimers;
+
+    private OutcomeTimers loadedLookupTimers;
+
+    @PostConstruct
+    void registerMetrics() {
+        cachedLookupTimers = new OutcomeTimers(meterRegistry, "product.lookup",
+                "Time to look up one product by id", "cache", "hit");
+        loadedLookupTimers = new OutcomeTimers(meterRegistry, "product.lookup",
+                "Time to look up one product by id", "cache", "miss");
+    }
+
     @CacheEvict(value = "products", allEntries = true)
 
     public String addProduct(Product product) {
@@ -108,16 +131,37 @@ public class ProductService {
         return "Product deleted successfully";
     }
 
-    @Cacheable(value = "product", key = "#id")
-
+    // Reads through the "product" cache by hand instead of @Cacheable so hits and misses are timed apart
     public Product getProductById(Long id) {
-        Product product = productRepository.findById(id).orElse(null);
-        if (product == null) {
-            product = new Product();
-            product.setId(-1L);
-            product.setName("Product not found");
+        long start = System.nanoTime();
+        Cache cache = cacheManager.getCache("product");
+        Cache.ValueWrapper cached = cache != null ? cache.get(id) : null;
+        if (cached != null) {
+            Product product = (Product) cached.get();
+            cachedLookupTimers.record(lookupOutcome(product), start);
+            return product;
+        }
+
+        String outcome = "error";
+        try {
+            Product product = productRepository.findById(id).orElse(null);
+            if (product == null) {
+                product = new Product();
+                product.setId(-1L);
+                product.setName("Product not found");
+            }
+            if (cache != null) {
+                cache.put(id, product);
+            }
+            outcome = lookupOutcome(product);
+            return product;
+        } finally {
+            loadedLookupTimers.record(outcome, start);
         }
-        return product;
+    }
+
+    private static String lookupOutcome(Product product) {
+        return product != null && product.getId() != null && product.getId() != -1L ? "found" : "not_found";
     }
 
     @Cacheable(value = "products")
@@ -1,11 +1,14 @@
 package com.example.springapp.client;
 
 import com.example.springapp.dto.InventoryDTO;
+import com.example.springapp.dto.InventoryPageDTO;
+import com.example.springapp.dto.StockRollupDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @FeignClient(name = "inventory-service")
@@ -14,6 +17,25 @@ public interface InventoryClient {
     @GetMapping("/inventory")
     List<InventoryDTO> getAllInventory(@RequestParam("pageNo") int pageNo, @RequestParam("pageSize") int pageSize);
 
+    @GetMapping("/inventory/keyset")
+    InventoryPageDTO getInventoryKeyset(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam("size") int size);
+
     @GetMapping("/inventory/{productId}")
     InventoryDTO getInventoryByProductId(@PathVariable("productId") Long productId);
+
+    @GetMapping("/inventory/rollups/{productId}")
+    List<StockRollupDTO> getStockRollups(
+            @PathVariable("productId") Long productId,
+            @RequestParam("from") LocalDate from,
+            @RequestParam("to") LocalDate to,
+            @RequestParam("transactionType") String transactionType);
+
+    @GetMapping("/inventory/rollups")
+    List<StockRollupDTO> getStockRollups(
+            @RequestParam("productIds") List<Long> productIds,
+            @RequestParam("from") LocalDate from,
+            @RequestParam("to") LocalDate to,
+            @RequestParam("transactionType") String transactionType);
 }
@@ -0,0 +1,90 @@
+package com.example.springapp.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-listener consumer metrics: records processed, failed and skipped as duplicates, records
+ * per poll, time to handle each poll (outcome=failure when any record in it failed) and how old
+ * the oldest record of each poll was when it was handled. Broker-side lag (records-lag-max)
+ * comes from the Kafka client metrics bound in {@link KafkaConsumerConfig}, tagged with the same
+ * listener name.
+ */
+@Component
+public class KafkaListenerMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, ListenerMeters> meters = new ConcurrentHashMap<>();
+
+    public KafkaListenerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records one handled poll. startNanos is System.nanoTime() when the listener was invoked;
+     * failed counts records that were skipped or could not be applied.
+     */
+    public void recordBatch(String listener, List<? extends ConsumerRecord<?, ?>> records, long startNanos,
+            int failed) {
+        ListenerMeters listenerMeters = meters.computeIfAbsent(listener, this::register);
+        listenerMeters.processing.record(failed == 0 ? "success" : "failure", startNanos);
+        listenerMeters.records.increment(records.size());
+        if (failed > 0) {
+            listenerMeters.failed.increment(failed);
+        }
+        listenerMeters.batchSize.record(records.size());
+        long oldest = Long.MAX_VALUE;
+        for (ConsumerRecord<?, ?> record : records) {
+            oldest = Math.min(oldest, record.timestamp());
+        }
+        if (oldest != Long.MAX_VALUE && oldest > 0) {
+            listenerMeters.delay.record(Math.max(0, System.currentTimeMillis() - oldest), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Records skipped because their event id was already handled
+    public void recordDuplicates(String listener, int duplicates) {
+        if (duplicates > 0) {
+            meters.computeIfAbsent(listener, this::register).duplicates.increment(duplicates);
+        }
+    }
+
+    private ListenerMeters register(String listener) {
+        return new ListenerMeters(
+                new OutcomeTimers(meterRegistry, "kafka.listener.processing",
+                        "Time for the listener to handle one poll", "listener", listener),
+                Counter.builder("kafka.listener.records")
+                        .description("Records handled by the listener")
+                        .tag("listener", listener)
+                        .register(meterRegistry),
+                Counter.builder("kafka.listener.records.failed")
+                        .description("Records the listener skipped or could not apply")
+                        .tag("listener", listener)
+                        .register(meterRegistry),
+                Counter.builder("kafka.listener.records.duplicate")
+                        .description("Records skipped because their event id was already handled")
+                        .tag("listener", listener)
+                        .register(meterRegistry),
+                DistributionSummary.builder("kafka.listener.batch.size")
+                        .description("Records delivered per poll")
+                        .tag("listener", listener)
+                        .register(meterRegistry),
+                Timer.builder("kafka.listener.delay")
+                        .description("Age of the oldest record in a poll when the listener handled it")
+                        .tag("listener", listener)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+    }
+
+    private record ListenerMeters(OutcomeTimers processing, Counter records, Counter failed, Counter duplicates,
+            DistributionSummary batchSize, Timer delay) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.springapp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One timer per outcome for a single operation, tagged outcome=&lt;value&gt; on top of any fixed
+ * tags. Timers publish percentile histograms so latency quantiles can be aggregated across
+ * instances on the Prometheus side. Outcomes must come from a small fixed set.
+ */
+public final class OutcomeTimers {
+
+    private final MeterRegistry meterRegistry;
+    private final String name;
+    private final String description;
+    private final Tags tags;
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public OutcomeTimers(MeterRegistry meterRegistry, String name, String description, String... tags) {
+        this.meterRegistry = meterRegistry;
+        this.name = name;
+        this.description = description;
+        this.tags = Tags.of(tags);
+    }
+
+    public void record(String outcome, long startNanos) {
+        timers.computeIfAbsent(outcome, this::register).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer register(String outcome) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -1,16 +1,52 @@
 package com.example.springapp.consumers;
 
+import com.example.springapp.config.KafkaListenerMetrics;
 import com.example.springapp.events.InventoryEvent;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service
 @Slf4j
 public class InventoryEventConsumer {
 
-    @KafkaListener(topics = "${kafka.topic.inventory-events}", groupId = "${spring.kafka.consumer.group-id}")
-    public void consumeInventoryEvent(InventoryEvent event) {
+    private static final String LISTENER = "inventory-events";
+
+    private final KafkaListenerMetrics listenerMetrics;
+
+    public InventoryEventConsumer(KafkaListenerMetrics listenerMetrics) {
+        this.listenerMetrics = listenerMetrics;
+    }
+
+    @KafkaListener(id = "recommendation-" + LISTENER, topics = "${kafka.topic.inventory-events}",
+            groupId = "${spring.kafka.consumer.group-id}", containerFactory = "inventoryEventListenerFactory")
+    public void consumeInventoryEvents(List<ConsumerRecord<String, InventoryEvent>> records) {
+        long start = System.nanoTime();
+        int failed = 0;
+        // Several alerts for one product in the same poll only need one recommendation, for the latest
+        Map<Long, InventoryEvent> latestAlerts = new LinkedHashMap<>();
+        for (ConsumerRecord<String, InventoryEvent> record : records) {
+            if (record.value() == null) {
+                log.warn("Skipping undeserializable inventory event at {}-{}@{}", record.topic(), record.partition(), record.offset());
+                failed++;
+                continue;
+            }
+            if (!consumeInventoryEvent(record.value(), latestAlerts)) {
+                failed++;
+            }
+        }
+        for (InventoryEvent alert : latestAlerts.values()) {
+            generateRestockRecommendation(alert.getProductId(), alert.getQuantity(), alert.getThreshold());
+        }
+        listenerMetrics.recordBatch(LISTENER, records, start, failed);
+    }
+
+    private boolean consumeInventoryEvent(InventoryEvent event, Map<Long, InventoryEvent> latestAlerts) {
         try {
             log.info("Received inventory event: {} for product ID: {}", event.getEventType(), event.getProductId());
 
@@ -18,8 +54,8 @@ public class InventoryEventConsumer {
                 case LOW_STOCK_ALERT:
                     log.info("LOW STOCK ALERT for product ID: {} - Current quantity: {}, Threshold: {}",
                             event.getProductId(), event.getQuantity(), event.getThreshold());
-                    // Generate restock recommendation
-                    generateRestockRecommendation(event.getProductId(), event.getQuantity(), event.getThreshold());
+                    // Restock recommendation is generated once per product after the poll
+                    latestAlerts.put(event.getProductId(), event);
                     break;
                 case STOCK_UPDATED:
                     log.info("Stock updated for product ID: {} - New quantity: {}",
@@ -27,8 +63,10 @@ public class InventoryEventConsumer {
                     // Track stock changes for recommendation analysis
                     break;
             }
+            return true;
         } catch (Exception e) {
             log.error("Error processing inventory event: {}", e.getMessage(), e);
+            return false;
         }
     }
 
@@ -1,22 +1,61 @@
 package com.example.springapp.consumers;
 
+import com.example.springapp.config.KafkaListenerMetrics;
 import com.example.springapp.events.OrderEvent;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @Slf4j
 public class OrderEventConsumer {
 
-    // Simple in-memory tracking of popular products
-    private final Map<Long, Integer> productOrderCount = new HashMap<>();
+    private static final String LISTENER = "order-events";
 
-    @KafkaListener(topics = "${kafka.topic.order-events}", groupId = "${spring.kafka.consumer.group-id}")
-    public void consumeOrderEvent(OrderEvent event) {
+    // Simple in-memory tracking of popular products; concurrent because listener concurrency is configurable
+    private final Map<Long, Integer> productOrderCount = new ConcurrentHashMap<>();
+
+    private final KafkaListenerMetrics listenerMetrics;
+    private final RecentEventIds recentEventIds;
+
+    public OrderEventConsumer(KafkaListenerMetrics listenerMetrics,
+            @Value("${kafka.listener.order-events.dedup-max-ids:100000}") int dedupMaxIds) {
+        this.listenerMetrics = listenerMetrics;
+        this.recentEventIds = new RecentEventIds(dedupMaxIds);
+    }
+
+    @KafkaListener(id = "recommendation-" + LISTENER, topics = "${kafka.topic.order-events}",
+            groupId = "${spring.kafka.consumer.group-id}", containerFactory = "orderEventListenerFactory")
+    public void consumeOrderEvents(List<ConsumerRecord<String, OrderEvent>> records) {
+        long start = System.nanoTime();
+        int failed = 0;
+        int duplicates = 0;
+        for (ConsumerRecord<String, OrderEvent> record : records) {
+            if (record.value() == null) {
+                log.warn("Skipping undeserializable order event at {}-{}@{}", record.topic(), record.partition(), record.offset());
+                failed++;
+                continue;
+            }
+            if (!recentEventIds.firstSeen(record.value().getEventId())) {
+                log.debug("Skipping duplicate order event {}", record.value().getEventId());
+                duplicates++;
+                continue;
+            }
+            if (!consumeOrderEvent(record.value())) {
+                failed++;
+            }
+        }
+        listenerMetrics.recordDuplicates(LISTENER, duplicates);
+        listenerMetrics.recordBatch(LISTENER, records, start, failed);
+    }
+
+    private boolean consumeOrderEvent(OrderEvent event) {
         try {
             log.info("Received order event: {} for order ID: {}", event.getEventType(), event.getOrderId());
 
@@ -24,8 +63,10 @@ public class OrderEventConsumer {
                 case CREATED:
                     log.info("Order created with {} items - Total: ${}",
                             event.getQuantity(), event.getTotalAmount());
+                    break;
+                case ORDER_LINE:
                     // Track product popularity for recommendations
-                    if (event.getProductId() != null) {
+                    if (event.getProductId() != null && event.getQuantity() != null) {
                         trackProductPopularity(event.getProductId(), event.getQuantity());
                     }
                     break;
@@ -36,8 +77,10 @@ public class OrderEventConsumer {
                     log.info("Order cancelled: {}", event.getOrderId());
                     break;
             }
+            return true;
         } catch (Exception e) {
             log.error("Error processing order event: {}", e.getMessage(), e);
+            return false;
         }
     }
 
@@ -0,0 +1,29 @@
+package com.example.springapp.consumers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ids of the events a listener handled most recently, so an event delivered again (order-service's
+ * outbox re-sends a batch whose acknowledgement it did not see) is handled once. Holds up to
+ * maxIds ids, dropping the oldest first; like the state the listeners keep, it starts empty on
+ * restart.
+ */
+final class RecentEventIds {
+
+    private final LinkedHashMap<String, Boolean> ids;
+
+    RecentEventIds(int maxIds) {
+        this.ids = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxIds;
+            }
+        };
+    }
+
+    // True the first time an id is seen; events without an id cannot be told apart and always count as new
+    synchronized boolean firstSeen(String eventId) {
+        return eventId == null || ids.putIfAbsent(eventId, Boolean.TRUE) == null;
+    }
+}
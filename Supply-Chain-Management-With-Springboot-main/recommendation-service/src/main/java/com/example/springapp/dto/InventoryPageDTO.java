@@ -0,0 +1,11 @@
+package com.example.springapp.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class InventoryPageDTO {
+    private List<InventoryDTO> items;
+    private String nextCursor;
+}
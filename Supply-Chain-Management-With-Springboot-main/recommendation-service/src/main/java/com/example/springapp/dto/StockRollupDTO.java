@@ -0,0 +1,16 @@
+package com.example.springapp.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class StockRollupDTO {
+    private Long productId;
+    private LocalDate movementDate;
+    private String transactionType;
+    private Long units;
+    private Long transactionCount;
+    private Integer minStock;
+    private Integer maxStock;
+}
@@ -17,10 +17,12 @@ public class OrderEvent {
     private Integer quantity;
     private Double totalAmount;
     private LocalDateTime timestamp;
+    private String eventId; // null from producers that predate the order outbox
 
     public enum EventType {
         CREATED,
         CONFIRMED,
-        CANCELLED
+        CANCELLED,
+        ORDER_LINE
     }
 }
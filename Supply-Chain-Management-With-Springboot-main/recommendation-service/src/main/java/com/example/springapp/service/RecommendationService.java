@@ -1,7 +1,9 @@
 package com.example.springapp.service;
 
 import com.example.springapp.dto.InventoryDTO;
+import com.example.springapp.dto.InventoryPageDTO;
 import com.example.springapp.dto.ProductDTO;
+import com.example.springapp.dto.StockRollupDTO;
 import com.example.springapp.models.StockRecommendation;
 // import com.example.springapp.models.StockTransaction;
 // import com.example.springapp.repositories.InventoryRepository;
@@ -9,14 +11,20 @@ import com.example.springapp.models.StockRecommendation;
 // import com.example.springapp.repositories.StockTransactionRepository;
 import com.example.springapp.client.InventoryClient;
 import com.example.springapp.client.ProductClient;
+import com.example.springapp.config.OutcomeTimers;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class RecommendationService {
@@ -28,9 +36,27 @@ public class RecommendationService {
     @Autowired
     ProductClient productClient;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private OutcomeTimers lowStockAlertTimers;
+
     // Default threshold: alert when stock is at 20% of reorder level or below
     private static final double DEFAULT_THRESHOLD_PERCENT = 0.20;
 
+    private static final int SALES_RATE_WINDOW_DAYS = 30;
+
+    private static final int INVENTORY_PAGE_SIZE = 500;
+
+    // Product ids per rollup request, which keeps the query string to a few kilobytes
+    private static final int ROLLUP_BATCH_SIZE = 200;
+
+    @PostConstruct
+    void registerMetrics() {
+        lowStockAlertTimers = new OutcomeTimers(meterRegistry, "recommendation.low_stock_alerts",
+                "Time to scan the catalog for low stock alerts");
+    }
+
     /**
      * Get all stock recommendations based on default threshold (20%)
      */
@@ -58,7 +84,7 @@ public class RecommendationService {
             return null; // No recommendation needed
         }
 
-        return createRecommendation(inventory);
+        return createRecommendation(inventory, calculateDailySalesRate(productId));
     }
 
     /**
@@ -69,15 +95,39 @@ public class RecommendationService {
      *                         e.g., 0.20 means alert at 20% of reorder level
      */
     public List<StockRecommendation> getLowStockAlerts(double thresholdPercent) {
-        List<InventoryDTO> allInventory = inventoryClient.getAllInventory(0, 1000); // Fetch mostly all
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            List<StockRecommendation> recommendations = scanForLowStock(thresholdPercent);
+            outcome = "success";
+            return recommendations;
+        } finally {
+            lowStockAlertTimers.record(outcome, start);
+        }
+    }
+
+    private List<StockRecommendation> scanForLowStock(double thresholdPercent) {
         List<StockRecommendation> recommendations = new ArrayList<>();
 
-        for (InventoryDTO inventory : allInventory) {
-            int threshold = (int) (inventory.getReorderLevel() * thresholdPercent);
-            if (inventory.getCurrentStock() <= threshold) {
-                recommendations.add(createRecommendation(inventory));
+        // Walk the whole catalog with keyset cursors; every page costs the same however deep we are
+        String cursor = null;
+        do {
+            InventoryPageDTO page = inventoryClient.getInventoryKeyset(cursor, INVENTORY_PAGE_SIZE);
+            List<InventoryDTO> lowStock = new ArrayList<>();
+            for (InventoryDTO inventory : page.getItems()) {
+                int threshold = (int) (inventory.getReorderLevel() * thresholdPercent);
+                if (inventory.getCurrentStock() <= threshold) {
+                    lowStock.add(inventory);
+                }
             }
-        }
+            // Sales rates of the whole page's alerts come from one rollup request, not one per product
+            Map<Long, Double> salesRates = calculateDailySalesRates(lowStock);
+            for (InventoryDTO inventory : lowStock) {
+                recommendations.add(createRecommendation(inventory,
+                        salesRates.getOrDefault(inventory.getProductId(), 0.0)));
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
 
         return recommendations;
     }
@@ -92,7 +142,7 @@ public class RecommendationService {
     /**
      * Create a stock recommendation for an inventory item
      */
-    private StockRecommendation createRecommendation(InventoryDTO inventory) {
+    private StockRecommendation createRecommendation(InventoryDTO inventory, double dailySalesRate) {
         StockRecommendation recommendation = new StockRecommendation();
 
         // Basic inventory info
@@ -110,11 +160,10 @@ public class RecommendationService {
         recommendation.setUrgencyLevel(urgency);
 
         // Estimate days until stockout
-        int daysUntilStockout = estimateDaysUntilStockout(inventory);
+        int daysUntilStockout = estimateDaysUntilStockout(inventory, dailySalesRate);
         recommendation.setDaysUntilStockout(daysUntilStockout);
 
-        // Calculate and set daily sales rate for transparency
-        double dailySalesRate = calculateDailySalesRate(inventory.getProductId());
+        // Set daily sales rate for transparency
         recommendation.setDailySalesRate(dailySalesRate);
 
         // Get product to find supplier info
@@ -164,7 +213,7 @@ public class RecommendationService {
      * Simple formula: remaining_days = current_stock / daily_sales_rate
      * Calculated from transaction history over last 30 days
      */
-    private int estimateDaysUntilStockout(InventoryDTO inventory) {
+    private int estimateDaysUntilStockout(InventoryDTO inventory, double calculatedSalesRate) {
         // Prioritize manual input from Inventory entity if available
         double dailySalesRate = 0.0;
 
@@ -172,7 +221,7 @@ public class RecommendationService {
             dailySalesRate = inventory.getAverageDailyConsumption();
         } else {
             // Fallback to calculated rate from transactions
-            dailySalesRate = calculateDailySalesRate(inventory.getProductId());
+            dailySalesRate = calculatedSalesRate;
         }
 
         if (dailySalesRate == 0) {
@@ -186,14 +235,42 @@ public class RecommendationService {
 
     /**
      * Calculate average daily sales rate for a product
-     * Formula: total_items_sold_last_30_days / 30
+     * Formula: total_items_sold_last_30_days / 30, read from the inventory daily rollup
      */
+    private double calculateDailySalesRate(Long productId) {
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(SALES_RATE_WINDOW_DAYS - 1);
+        try {
+            long unitsSold = 0;
+            for (StockRollupDTO day : inventoryClient.getStockRollups(productId, from, to, "SALE")) {
+                unitsSold -= day.getUnits(); // SALE quantities are negative
+            }
+            return (double) unitsSold / SALES_RATE_WINDOW_DAYS;
+        } catch (Exception e) {
+            return 0.0;
+        }
+    }
+
     /**
-     * Calculate average daily sales rate for a product
+     * As {@link #calculateDailySalesRate(Long)} for several products, ROLLUP_BATCH_SIZE per request.
+     * Products without sales, or in a batch whose request failed, are left out (rate 0).
      */
-    private double calculateDailySalesRate(Long productId) {
-        // Simplified logic: Since we cannot access StockTransaction directly,
-        // we return 0.0 or could fetch from InventoryService if endpoint existed.
-        return 0.0;
+    private Map<Long, Double> calculateDailySalesRates(List<InventoryDTO> inventories) {
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(SALES_RATE_WINDOW_DAYS - 1);
+        Map<Long, Double> rates = new HashMap<>();
+        for (int start = 0; start < inventories.size(); start += ROLLUP_BATCH_SIZE) {
+            List<Long> productIds = inventories.subList(start, Math.min(start + ROLLUP_BATCH_SIZE, inventories.size()))
+                    .stream().map(InventoryDTO::getProductId).toList();
+            try {
+                for (StockRollupDTO day : inventoryClient.getStockRollups(productIds, from, to, "SALE")) {
+                    // SALE quantities are negative
+                    rates.merge(day.getProductId(), (double) -day.getUnits() / SALES_RATE_WINDOW_DAYS, Double::sum);
+                }
+            } catch (Exception e) {
+                // Same as the single-product lookup: no rate rather than no recommendation
+            }
+        }
+        return rates;
     }
 }